@@ -0,0 +1,146 @@
+package com.finlib.market;
+
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/*LRU cache of built curves keyed by CurveKey, with a maximum size and a maximum
+age. A hit hands back the already built curve. Concurrent requests for the same
+key wait on a single build instead of each running their own.*/
+public final class CurveCache<T> {
+    private final int maxSize;
+    private final long maxAgeNanos;
+    private final LinkedHashMap<CurveKey, Entry<T>> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    private static final class Entry<T> {
+        private final CompletableFuture<T> curve = new CompletableFuture<>();
+        private final long createdNanos = System.nanoTime();
+    }
+
+    public CurveCache(int maxSize, Duration maxAge){
+        if (maxSize < 1)
+            throw new IllegalArgumentException("Cache size must be positive");
+        this.maxSize = maxSize;
+        this.maxAgeNanos = maxAge.toNanos();
+    }
+
+    public T get(CurveKey key, Supplier<T> builder){
+        Entry<T> entry;
+        boolean owner = false;
+        synchronized (entries) {
+            entry = entries.get(key);
+            //a build still running is shared however long it takes
+            if (entry != null && entry.curve.isDone() && isExpired(entry, System.nanoTime())) {
+                entries.remove(key);
+                evictions.increment();
+                entry = null;
+            }
+            if (entry == null) {
+                entry = new Entry<>();
+                entries.put(key, entry);
+                owner = true;
+                evict();
+            }
+        }
+        if (!owner) {
+            //a waiter on a build that fails did not get a curve from the cache
+            T curve;
+            try {
+                curve = join(entry);
+            } catch (RuntimeException | Error e) {
+                misses.increment();
+                throw e;
+            }
+            hits.increment();
+            return curve;
+        }
+        misses.increment();
+        try {
+            entry.curve.complete(builder.get());
+        } catch (Throwable e) {
+            //a failed build is not cached, waiting callers see the same failure
+            synchronized (entries) {
+                entries.remove(key, entry);
+            }
+            entry.curve.completeExceptionally(e);
+            throw e;
+        }
+        return join(entry);
+    }
+
+    public Optional<T> getIfPresent(CurveKey key){
+        Entry<T> entry;
+        synchronized (entries) {
+            entry = entries.get(key);
+        }
+        if (entry == null || !entry.curve.isDone() || entry.curve.isCompletedExceptionally()
+                || isExpired(entry, System.nanoTime())) {
+            misses.increment();
+            return Optional.empty();
+        }
+        hits.increment();
+        return Optional.of(entry.curve.join());
+    }
+
+    public void invalidate(CurveKey key){
+        synchronized (entries) {
+            entries.remove(key);
+        }
+    }
+
+    public void clear(){
+        synchronized (entries) {
+            entries.clear();
+        }
+    }
+
+    public int size(){
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    public long getHits(){ return hits.sum();}
+    public long getMisses(){ return misses.sum();}
+    public long getEvictions(){ return evictions.sum();}
+
+    private boolean isExpired(Entry<T> entry, long now){
+        return now - entry.createdNanos > maxAgeNanos;
+    }
+
+    //Called with the lock held: drop expired entries, then the least recently used ones over the size limit
+    private void evict(){
+        long now = System.nanoTime();
+        Iterator<Map.Entry<CurveKey, Entry<T>>> it = entries.entrySet().iterator();
+        int excess = entries.size() - maxSize;
+        while (it.hasNext()) {
+            Entry<T> entry = it.next().getValue();
+            if (excess > 0 || (entry.curve.isDone() && isExpired(entry, now))) {
+                it.remove();
+                evictions.increment();
+                excess--;
+            }
+        }
+    }
+
+    private static <T> T join(Entry<T> entry){
+        try {
+            return entry.curve.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException)
+                throw (RuntimeException) e.getCause();
+            if (e.getCause() instanceof Error)
+                throw (Error) e.getCause();
+            throw e;
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package com.finlib.market;
+
+import com.finlib.market.credit.CDS;
+import com.finlib.market.rates.IborCurve;
+import com.finlib.market.rates.IborDeposit;
+import com.finlib.market.rates.IborFRA;
+import com.finlib.market.rates.IborFuture;
+import com.finlib.market.rates.IborSwap;
+import com.finlib.shared.DiscountCurve;
+import com.finlib.shared.InterpolationType;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+
+/*Identifies a curve build by everything that goes into it: valuation date,
+instrument definitions including their quotes, model parameters and build
+options. Curves that a build depends on (discount curve, Libor curve) are compared
+by identity. The hash is computed once so lookups cost a single pass over the
+instruments. For an Ibor curve, IborCurve.Builder.key() fills in every input.*/
+public final class CurveKey {
+    private final Object[] components;
+    private final int hash;
+
+    private CurveKey(Object[] components){
+        this.components = components;
+        this.hash = Arrays.deepHashCode(components);
+    }
+
+    public static CurveKey of(Object... components){
+        return new CurveKey(components.clone());
+    }
+
+    public static CurveKey ibor(LocalDate valuationDate,
+                                InterpolationType interpolationType,
+                                Optional<DiscountCurve> discountCurve,
+                                List<IborDeposit> depos,
+                                List<IborFRA> fras,
+                                List<IborFuture> futures,
+                                double[] futurePrices,
+                                double meanReversion,
+                                double volatility,
+                                List<IborSwap> swaps,
+                                boolean checkRefit){
+        return new CurveKey(new Object[]{"IBOR", valuationDate, interpolationType,
+                discountCurve.map(IdentityRef::new).orElse(null),
+                List.copyOf(depos), List.copyOf(fras), List.copyOf(futures), futurePrices.clone(),
+                meanReversion, volatility, List.copyOf(swaps), checkRefit});
+    }
+
+    public static CurveKey credit(LocalDate valuationDate,
+                                  IborCurve liborCurve,
+                                  List<CDS> cdsContracts,
+                                  double recoveryRate,
+                                  InterpolationType interpolationType){
+        return new CurveKey(new Object[]{"CREDIT", valuationDate, interpolationType, new IdentityRef(liborCurve),
+                List.copyOf(cdsContracts), recoveryRate});
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof CurveKey)) return false;
+        CurveKey that = (CurveKey) o;
+        return hash == that.hash && Arrays.deepEquals(components, that.components);
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+
+    private static final class IdentityRef {
+        private final Object ref;
+        IdentityRef(Object ref){
+            this.ref = ref;
+        }
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof IdentityRef && ((IdentityRef) o).ref == ref;
+        }
+        @Override
+        public int hashCode() {
+            return System.identityHashCode(ref);
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package com.finlib.market;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.function.IntConsumer;
+
+/*Splits an index range into chunks, runs each chunk as one task on an executor and
+waits for all of them. Waiting on the tasks is also what makes their writes to
+shared output arrays visible to the caller. The first failure is rethrown as the
+task threw it rather than wrapped in a CompletionException.*/
+public final class ParallelTasks {
+    private ParallelTasks(){}
+
+    @FunctionalInterface
+    public interface Chunk {
+        void run(int chunk, int from, int to);
+    }
+
+    //Runs chunk c over [c * chunkSize, min((c + 1) * chunkSize, n)) for every chunk
+    public static void runChunks(int n, int chunkSize, Executor executor, Chunk task){
+        if (chunkSize < 1)
+            throw new IllegalArgumentException("Chunk size must be positive");
+        int numChunks = (n + chunkSize - 1) / chunkSize;
+        CompletableFuture<?>[] futures = new CompletableFuture<?>[numChunks];
+        for (int c = 0; c < numChunks; c++){
+            int chunk = c;
+            int from = c * chunkSize;
+            int to = Math.min(from + chunkSize, n);
+            futures[c] = CompletableFuture.runAsync(() -> task.run(chunk, from, to), executor);
+        }
+        try {
+            CompletableFuture.allOf(futures).join();
+        } catch (CompletionException e){
+            if (e.getCause() instanceof RuntimeException)
+                throw (RuntimeException) e.getCause();
+            if (e.getCause() instanceof Error)
+                throw (Error) e.getCause();
+            throw e;
+        }
+    }
+
+    //Runs task(i) for every i in [0, n), chunkSize consecutive indices per task
+    public static void forEach(int n, int chunkSize, Executor executor, IntConsumer task){
+        runChunks(n, chunkSize, executor, (chunk, from, to) -> {
+            for (int i = from; i < to; i++)
+                task.accept(i);
+        });
+    }
+
+    //One task per index
+    public static void forEach(int n, Executor executor, IntConsumer task){
+        forEach(n, 1, executor, task);
+    }
+}
@@ -2,25 +2,22 @@ package com.finlib.market.credit;
 
 import com.finlib.finutils.*;
 import com.finlib.market.rates.IborCurve;
-import com.finlib.market.rates.IborDeposit;
-import com.finlib.shared.InterpolationType;
-import com.finlib.shared.Interpolator;
 import it.unimi.dsi.fastutil.doubles.DoubleArrayList;
-import org.apache.commons.lang3.SerializationUtils;
 import org.apache.commons.math4.util.FastMath;
 
 import java.time.LocalDate;
-import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.stream.Collectors;
 
 public final class CDS {
+    private static final int NUM_CACHED_GRIDS = 4;
     private final LocalDate stepInDate;
     private final LocalDate maturityDate;
-    private double coupon;
+    private final double coupon;
     private final double notional;
     private final boolean longProtection;
     private final FrequencyType freqType;
@@ -31,6 +28,8 @@ public final class CDS {
     private List<LocalDate> adjDates = null;
     private DoubleArrayList accrualFactors = new DoubleArrayList();
     private DoubleArrayList flows = new DoubleArrayList();
+    //most recently built grid first, replaced whole so readers never see a partly written array
+    private volatile CDSGrid[] grids = new CDSGrid[0];
 
 
     private CDS(LocalDate stepInDate,
@@ -60,6 +59,25 @@ public final class CDS {
 
     }
 
+    //Same contract with another running coupon; the schedule and cached grids are shared
+    private CDS(CDS cds, double coupon){
+        this.stepInDate = cds.stepInDate;
+        this.maturityDate = cds.maturityDate;
+        this.coupon = coupon;
+        this.notional = cds.notional;
+        this.longProtection = cds.longProtection;
+        this.freqType = cds.freqType;
+        this.dayCountType = cds.dayCountType;
+        this.calendarType = cds.calendarType;
+        this.dayAdjustType = cds.dayAdjustType;
+        this.dateGenRuleType = cds.dateGenRuleType;
+        this.adjDates = cds.adjDates;
+        this.accrualFactors = cds.accrualFactors;
+        this.grids = cds.grids;
+        for (int it = 0; it < accrualFactors.size(); it++)
+            flows.add(accrualFactors.getDouble(it) * coupon * notional);
+    }
+
     public static CDS of(LocalDate stepInDate,
                          LocalDate maturityDate,
                          double coupon,
@@ -147,57 +165,114 @@ public final class CDS {
         }
     }
 
+    public CDS withCoupon(double coupon){
+        return new CDS(this, coupon);
+    }
+
     public LocalDate getMaturityDate(){return maturityDate;}
+    public LocalDate getStepInDate(){return stepInDate;}
+    public double getCoupon(){return coupon;}
+    public double getNotional(){return notional;}
+    public boolean isLongProtection(){return longProtection;}
+    public FrequencyType getFreqType(){return freqType;}
+    public DayCountType getDayCountType(){return dayCountType;}
+    public CalendarType getCalendarType(){return calendarType;}
+    public DayAdjustType getDayAdjustType(){return dayAdjustType;}
+    public DateGenRuleType getDateGenRuleType(){return dateGenRuleType;}
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof CDS)) return false;
+        CDS that = (CDS) o;
+        return Double.compare(that.coupon, coupon) == 0 && Double.compare(that.notional, notional) == 0 &&
+                longProtection == that.longProtection && stepInDate.equals(that.stepInDate) &&
+                maturityDate.equals(that.maturityDate) && freqType == that.freqType && dayCountType == that.dayCountType &&
+                calendarType == that.calendarType && dayAdjustType == that.dayAdjustType && dateGenRuleType == that.dateGenRuleType;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(stepInDate, maturityDate, coupon, notional, longProtection, freqType, dayCountType,
+                calendarType, dayAdjustType, dateGenRuleType);
+    }
+
+    private CDSGrid grid(LocalDate valuationDate, IborCurve liborCurve, int numSteps){
+        return grid(valuationDate, liborCurve, numSteps, Optional.empty());
+    }
 
-    private double[] riskyPV01(LocalDate valuationDate, CreditCurve creditCurve){
+    /*A few grids are kept so that a contract valued in turn against several Libor
+    curves or step counts, such as base and bumped curves in a risk run, does not
+    rebuild its grid on every call.*/
+    private CDSGrid grid(LocalDate valuationDate, IborCurve liborCurve, int numSteps, Optional<DailyDiscounts> dailyDfs){
+        CDSGrid[] cached = grids;
+        for (CDSGrid g : cached){
+            if (g.matches(valuationDate, liborCurve, numSteps, dailyDfs))
+                return g;
+        }
+        CDSGrid g = new CDSGrid(valuationDate, liborCurve, numSteps, stepInDate, maturityDate, adjDates,
+                accrualFactors.toDoubleArray(), new DayCount(dayCountType), dailyDfs);
+        CDSGrid[] updated = new CDSGrid[Math.min(cached.length + 1, NUM_CACHED_GRIDS)];
+        updated[0] = g;
+        System.arraycopy(cached, 0, updated, 1, updated.length - 1);
+        grids = updated;
+        return g;
+    }
+
+    /*Premium leg periods from until to - 1 of the risky PV01, where period 1 is the
+    first coupon and period k > 1 runs from payment k - 1 to payment k. Survival
+    probabilities are read at the payment times of those periods only, so a range
+    that ends before a curve node does not see the curve beyond it.*/
+    private static double riskyPV01(CDSGrid g, HazardCurve hazards, int from, int to){
 
         int couponAccruedIndicator = 1;
         boolean useFlatHazardRateIntegral = true;
 
         /*The risky_pv01 is the present value of a risky one dollar paid on
         the premium leg of a CDS contract.*/
-        IborCurve liborCurve = creditCurve.getLiborCurve();
-        DoubleArrayList paymentTimes = adjDates.stream().map(x -> ChronoUnit.DAYS.between(valuationDate,x)/365.0).
-                collect(Collectors.toCollection(DoubleArrayList::new));
+        double[] paymentTimes = g.paymentTimes;
+        double[] yearFracs = g.accrualFactors;
         /*this is the part of the coupon accrued from the previous coupon date
         to now*/
-        LocalDate pcd = adjDates.get(0);
-        LocalDate eff = stepInDate;
-        DayCount dayCount = new DayCount(dayCountType);
-        double accrual_factorPCDToNow = dayCount.yearFrac(eff, pcd);
+        double accrual_factorPCDToNow = g.accrualFactorPCDToNow;
 
-        DoubleArrayList yearFracs = accrualFactors;
-        double teff = ChronoUnit.DAYS.between(valuationDate,eff) / 365.0;
+        double fullRPV01 = 0.0;
+        double z1 = g.paymentDfs[from <= 1 ? 1 : from - 1];
+        double h1, q1;
+        int it = from;
+        if (from <= 1){
+            /*The first coupon is a special case which needs to be handled carefully
+            taking into account what coupon has already accrued and what has not*/
 
-        Interpolator qinterp = Interpolator.of(InterpolationType.FLAT_FORWARD_RATES,creditCurve.getTimes(), creditCurve.getSurvProbs());
-        Interpolator zinterp = Interpolator.of(InterpolationType.FLAT_FORWARD_RATES,liborCurve.getTimes(),liborCurve.getDiscFactors());
+            double qeff = hazards.survival(g.teff);
+            h1 = hazards.cumulativeHazard(paymentTimes[1]);
+            q1 = FastMath.exp(-h1);
 
-        /*The first coupon is a special case which needs to be handled carefully
-        taking into account what coupon has already accrued and what has not*/
+            /*reference credit survives to the premium payment date*/
+            fullRPV01 = q1 * z1 * yearFracs[1];
 
-        double qeff = qinterp.interpolate(teff);
-        double q1 = qinterp.interpolate(paymentTimes.getDouble(1));
-        double z1 = zinterp.interpolate(paymentTimes.getDouble(1));
+            /*coupon accrued from previous coupon to today paid in full at default
+            before coupon payment*/
 
-        /*reference credit survives to the premium payment date*/
-        double fullRPV01 = q1 * z1 * yearFracs.getDouble(1);
+            fullRPV01 = fullRPV01 + z1 * (qeff - q1) * accrual_factorPCDToNow * couponAccruedIndicator;
 
-        /*coupon accrued from previous coupon to today paid in full at default
-        before coupon payment*/
+            /*future accrued from now to coupon payment date assuming default roughly
+            midway*/
 
-        fullRPV01 = fullRPV01 + z1 * (qeff - q1) * accrual_factorPCDToNow * couponAccruedIndicator;
-
-        /*future accrued from now to coupon payment date assuming default roughly
-        midway*/
-
-        fullRPV01 += 0.5 * z1 *
-                 (qeff - q1) * (yearFracs.getDouble(1) - accrual_factorPCDToNow) * couponAccruedIndicator;
+            fullRPV01 += 0.5 * z1 *
+                     (qeff - q1) * (yearFracs[1] - accrual_factorPCDToNow) * couponAccruedIndicator;
+            it = 2;
+        } else {
+            h1 = hazards.cumulativeHazard(paymentTimes[from - 1]);
+            q1 = FastMath.exp(-h1);
+        }
 
-        for (int it = 2; it < paymentTimes.size(); it++){
-            double t2 = paymentTimes.getDouble(it);
-            double q2 = qinterp.interpolate(t2);
-            double z2 = zinterp.interpolate(t2);
-            double accrualFactor = yearFracs.getDouble(it);
+        for (; it < to; it++){
+            double t2 = paymentTimes[it];
+            double h2 = hazards.cumulativeHazard(t2);
+            double q2 = FastMath.exp(-h2);
+            double z2 = g.paymentDfs[it];
+            double accrualFactor = yearFracs[it];
             /*full coupon is paid at the end of the current period if survives to
             payment date*/
             fullRPV01 += q2 * z2 * accrualFactor;
@@ -205,7 +280,7 @@ public final class CDS {
             if (couponAccruedIndicator == 1){
                 if (useFlatHazardRateIntegral){
                     double tau = accrualFactor;
-                    double h12 = -FastMath.log(q2 / q1) / tau;
+                    double h12 = (h2 - h1) / tau;
                     double r12 = -FastMath.log(z2 / z1) / tau;
                     double alpha = h12 + r12;
                     double expTerm = 1.0 - FastMath.exp(-alpha * tau) - alpha * tau * FastMath.exp(-alpha * tau);
@@ -215,53 +290,149 @@ public final class CDS {
                 }
                 fullRPV01 = fullRPV01 + dfullRPV01;
             }
+            h1 = h2;
             q1 = q2;
+            z1 = z2;
         }
-        double cleanRPV01 = fullRPV01 - accrual_factorPCDToNow;
-        return new double[]{fullRPV01, cleanRPV01};
+        return fullRPV01;
     }
 
+    /*Protection leg PV. With numStepsPerYear set, the protection period is split into
+    that many equal steps; left empty, it is split at every credit and Libor curve
+    node, where both hazard and discount forwards are flat, and each piece is
+    integrated in closed form as in the ISDA standard model. The second is exact and
+    usually needs fewer pieces.*/
     public double protectionLegPV(LocalDate valuationDate, CreditCurve creditCurve, boolean useHazardRateIntegral,
                                   Optional<Double> recoveryRate, Optional<Integer> numStepsPerYear){
-        int numSteps = numStepsPerYear.orElse(25);
-        double recRate = recoveryRate.orElse(0.4);
-        double teff = ChronoUnit.DAYS.between(valuationDate,stepInDate)/365.0;
-        double tmat = ChronoUnit.DAYS.between(valuationDate,maturityDate)/365.0;
-        double dt = (tmat - teff) / numSteps;
-        double t = teff;
-        IborCurve liborCurve = creditCurve.getLiborCurve();
-        Interpolator qinterp = Interpolator.of(InterpolationType.FLAT_FORWARD_RATES,creditCurve.getTimes(), creditCurve.getSurvProbs());
-        Interpolator zinterp = Interpolator.of(InterpolationType.FLAT_FORWARD_RATES,liborCurve.getTimes(),liborCurve.getDiscFactors());
-        double z1 = zinterp.interpolate(t);
-        double q1 = qinterp.interpolate(t);
+        CDSGrid g = grid(valuationDate, creditCurve.getLiborCurve(), numSteps(numStepsPerYear));
+        return protectionLegPV(g, creditCurve, creditCurve.getHazardCurve(), useHazardRateIntegral,
+                recoveryRate.orElse(0.4));
+    }
+
+    private static int numSteps(Optional<Integer> numStepsPerYear){
+        if (numStepsPerYear.isEmpty())
+            return CDSGrid.ISDA_STEPS;
+        if (numStepsPerYear.get() <= 0)
+            throw new FinlibException("Number of protection leg steps must be positive");
+        return numStepsPerYear.get();
+    }
+
+    private double protectionLegPV(CDSGrid g, CreditCurve creditCurve, HazardCurve hazards, boolean useHazardRateIntegral,
+                                   double recRate){
+        double protectionPV = protectionLeg(g, creditCurve, hazards, useHazardRateIntegral);
+        protectionPV = protectionPV * (1.0 - recRate);
+        return protectionPV * notional;
+    }
+
+    /*Protection times and discount factors; in exact mode the credit curve nodes are
+    merged into the Libor ones. Used where pieces are indexed, as in the bootstrap.*/
+    private static double[][] protectionGrid(CDSGrid g, CreditCurve creditCurve){
+        double[] times = g.protectionTimes;
+        double[] dfs = g.protectionDfs;
+        if (!g.isIsda())
+            return new double[][]{times, dfs};
+        DoubleArrayList creditTimes = creditCurve.getTimes();
+        DoubleArrayList mergedTimes = new DoubleArrayList(times.length + creditTimes.size());
+        DoubleArrayList mergedDfs = new DoubleArrayList(times.length + creditTimes.size());
+        int j = 0;
+        while (j < creditTimes.size() && creditTimes.getDouble(j) <= times[0])
+            j++;
+        for (int i = 0; i < times.length; i++){
+            while (j < creditTimes.size() && creditTimes.getDouble(j) < times[i]){
+                mergedTimes.add(creditTimes.getDouble(j));
+                mergedDfs.add(g.df(creditTimes.getDouble(j)));
+                j++;
+            }
+            //a credit node on a Libor node adds nothing
+            if (j < creditTimes.size() && creditTimes.getDouble(j) == times[i])
+                j++;
+            mergedTimes.add(times[i]);
+            mergedDfs.add(dfs[i]);
+        }
+        return new double[][]{mergedTimes.toDoubleArray(), mergedDfs.toDoubleArray()};
+    }
+
+    /*The whole protection leg per unit notional before recovery. In exact mode the
+    credit curve nodes are merged into the Libor ones as the pieces are walked, giving
+    the same pieces as protectionGrid without building the merged arrays.*/
+    private static double protectionLeg(CDSGrid g, CreditCurve creditCurve, HazardCurve hazards, boolean useHazardRateIntegral){
+        double[] times = g.protectionTimes;
+        double[] dfs = g.protectionDfs;
+        if (!g.isIsda())
+            return protectionPieces(g, times, dfs, hazards, useHazardRateIntegral, 0, times.length - 1);
+        DoubleArrayList creditTimes = creditCurve.getTimes();
+        int j = 0;
+        while (j < creditTimes.size() && creditTimes.getDouble(j) <= times[0])
+            j++;
+        double z1 = dfs[0];
+        double h1 = hazards.cumulativeHazard(times[0]);
+        double q1 = FastMath.exp(-h1);
         double protectionPV = 0.0;
-        if (useHazardRateIntegral){
-            for (int i = 0; i < numSteps; i++){
-                t = t + dt;
-                double z2 = zinterp.interpolate(t);
-                double q2 = qinterp.interpolate(t);
-                double h12 = -FastMath.log(q2 / q1) / dt;
-                double r12 = -FastMath.log(z2 / z1) / dt;
-                double expTerm = FastMath.exp(-(r12 + h12) * dt);
-                double dprot_pv = h12 * (1.0 - expTerm) * q1 * z1 / (Math.abs(h12 + r12) + 1e-8);
-                protectionPV += dprot_pv;
+        for (int i = 1; i < times.length; i++){
+            while (j < creditTimes.size() && creditTimes.getDouble(j) < times[i]){
+                double t2 = creditTimes.getDouble(j);
+                double z2 = g.df(t2);
+                double h2 = hazards.cumulativeHazard(t2);
+                double q2 = FastMath.exp(-h2);
+                protectionPV += isdaPiece(z1, z2, h1, h2, q1, q2, useHazardRateIntegral);
+                h1 = h2;
                 q1 = q2;
                 z1 = z2;
+                j++;
             }
-        } else {
-            for (int i = 0; i < numSteps; i++) {
-                t = t + dt;
-                double z2 = zinterp.interpolate(t);
-                double q2 = qinterp.interpolate(t);
-                double dq = q1 - q2;
-                double dprot_pv = 0.5 * (z1 + z2) * dq;
-                protectionPV += dprot_pv;
-                q1 = q2;
-                z1 = z2;
+            if (j < creditTimes.size() && creditTimes.getDouble(j) == times[i])
+                j++;
+            double z2 = dfs[i];
+            double h2 = hazards.cumulativeHazard(times[i]);
+            double q2 = FastMath.exp(-h2);
+            protectionPV += isdaPiece(z1, z2, h1, h2, q1, q2, useHazardRateIntegral);
+            h1 = h2;
+            q1 = q2;
+            z1 = z2;
+        }
+        return protectionPV;
+    }
+
+    /*Protection pieces from until to - 1, piece k running from times[k] to times[k + 1].
+    The hazard integral of a piece is the difference of the cumulative hazards at its ends.*/
+    private static double protectionPieces(CDSGrid g, double[] times, double[] dfs, HazardCurve hazards,
+                                           boolean useHazardRateIntegral, int from, int to){
+        double dt = (g.tmat - g.teff) / (g.protectionTimes.length - 1);
+        double z1 = dfs[from];
+        double h1 = hazards.cumulativeHazard(times[from]);
+        double q1 = FastMath.exp(-h1);
+        double protectionPV = 0.0;
+        for (int i = from + 1; i <= to; i++){
+            double z2 = dfs[i];
+            double h2 = hazards.cumulativeHazard(times[i]);
+            double q2 = FastMath.exp(-h2);
+            if (g.isIsda()){
+                protectionPV += isdaPiece(z1, z2, h1, h2, q1, q2, useHazardRateIntegral);
+            } else if (useHazardRateIntegral){
+                double h12 = (h2 - h1) / dt;
+                double r12 = -FastMath.log(z2 / z1) / dt;
+                double expTerm = FastMath.exp(-(r12 + h12) * dt);
+                protectionPV += h12 * (1.0 - expTerm) * q1 * z1 / (Math.abs(h12 + r12) + 1e-8);
+            } else {
+                protectionPV += 0.5 * (z1 + z2) * (q1 - q2);
             }
+            h1 = h2;
+            q1 = q2;
+            z1 = z2;
         }
-        protectionPV = protectionPV * (1.0 - recRate);
-        return protectionPV * notional;
+        return protectionPV;
+    }
+
+    //One piece with flat hazard and discount forwards, in closed form or by the trapezoid rule
+    private static double isdaPiece(double z1, double z2, double h1, double h2, double q1, double q2, boolean useHazardRateIntegral){
+        if (!useHazardRateIntegral)
+            return 0.5 * (z1 + z2) * (q1 - q2);
+        //h dt and r dt; the step length cancels out of the closed form
+        double hdt = h2 - h1;
+        double rdt = -FastMath.log(z2 / z1);
+        double a = hdt + rdt;
+        double factor = FastMath.abs(a) < 1e-6 ? 1.0 - a / 2.0 + a * a / 6.0 : (1.0 - FastMath.exp(-a)) / a;
+        return q1 * z1 * hdt * factor;
     }
 
     public double[] value(LocalDate valuationDate, CreditCurve creditCurve,boolean useHazardRateIntegral,
@@ -270,11 +441,42 @@ public final class CDS {
         /*Valuation of a CDS contract on a specific valuation date given
         an issuer curve and a contract recovery rate.*/
 
-        double[] rpv01 = riskyPV01(valuationDate,creditCurve);
-        double fullRPV01 = rpv01[0];
-        double cleanRPV01 = rpv01[1];
+        CDSGrid g = grid(valuationDate, creditCurve.getLiborCurve(), numSteps(numStepsPerYear));
+        HazardCurve hazards = creditCurve.getHazardCurve();
+        double fullRPV01 = riskyPV01(g, hazards, 1, g.paymentTimes.length);
+        double protectionPV = protectionLegPV(g, creditCurve, hazards, useHazardRateIntegral, recoveryRate.orElse(0.4));
+        return pv(g, fullRPV01, protectionPV);
+    }
+
+    /*Full risky PV01, accrual from the previous coupon date to step in, and protection
+    leg PV per unit notional before recovery. They depend only on the schedule, so
+    every contract with this schedule can be priced from them.*/
+    double[] unitLegs(LocalDate valuationDate, CreditCurve creditCurve, boolean useHazardRateIntegral,
+                      Optional<Integer> numStepsPerYear, Optional<DailyDiscounts> dailyDfs){
+        return unitLegs(valuationDate, creditCurve, creditCurve.getHazardCurve(), useHazardRateIntegral, numStepsPerYear,
+                dailyDfs);
+    }
+
+    //unitLegs on a hazard curve with the same nodes as the credit curve, such as a shifted copy of its own
+    double[] unitLegs(LocalDate valuationDate, CreditCurve creditCurve, HazardCurve hazards, boolean useHazardRateIntegral,
+                      Optional<Integer> numStepsPerYear, Optional<DailyDiscounts> dailyDfs){
+        CDSGrid g = grid(valuationDate, creditCurve.getLiborCurve(), numSteps(numStepsPerYear), dailyDfs);
+        return new double[]{riskyPV01(g, hazards, 1, g.paymentTimes.length), g.accrualFactorPCDToNow,
+                protectionLeg(g, creditCurve, hazards, useHazardRateIntegral)};
+    }
+
+    /*The same three legs as unitLegs on a flat hazard rate curve, which needs no
+    bootstrap. Survival is exp(-hazardRate * t), so the exact integration only
+    splits the protection leg at the Libor nodes.*/
+    double[] flatHazardLegs(LocalDate valuationDate, IborCurve liborCurve, double hazardRate, Optional<DailyDiscounts> dailyDfs){
+        CDSGrid g = grid(valuationDate, liborCurve, CDSGrid.ISDA_STEPS, dailyDfs);
+        HazardCurve hazards = HazardCurve.flat(hazardRate);
+        return new double[]{riskyPV01(g, hazards, 1, g.paymentTimes.length), g.accrualFactorPCDToNow,
+                protectionPieces(g, g.protectionTimes, g.protectionDfs, hazards, true, 0, g.protectionTimes.length - 1)};
+    }
 
-        double protectionPV = protectionLegPV(valuationDate,creditCurve,true,Optional.of(0.4), Optional.of(25));
+    private double[] pv(CDSGrid g, double fullRPV01, double protectionPV){
+        double cleanRPV01 = fullRPV01 - g.accrualFactorPCDToNow;
 
         double fwdDf = 1.0;
         int longProt = longProtection ? 1 : -1;
@@ -285,6 +487,58 @@ public final class CDS {
         return new double[]{fullPV,cleanPV};
     }
 
+    /*Prices the contract while a credit curve is being bootstrapped and only the
+    survival probabilities after fixedTime, the last solved pillar, still move.
+    Premium periods and protection pieces that end on or before fixedTime are
+    summed once here, and value() only reprices the ones after it.*/
+    Bootstrap bootstrap(LocalDate valuationDate, CreditCurve creditCurve, double fixedTime, boolean useHazardRateIntegral,
+                        double recoveryRate, Optional<Integer> numStepsPerYear, Optional<DailyDiscounts> dailyDfs){
+        return new Bootstrap(valuationDate, creditCurve, fixedTime, useHazardRateIntegral, recoveryRate, numStepsPerYear,
+                dailyDfs);
+    }
+
+    final class Bootstrap {
+        private final CDSGrid g;
+        private final HazardCurve hazards;
+        private final boolean useHazardRateIntegral;
+        private final double recoveryRate;
+        private final double[] protectionTimes;
+        private final double[] protectionDfs;
+        private final int premiumFrom;
+        private final double premiumPrefix;
+        private final int protectionFrom;
+        private final double protectionPrefix;
+
+        private Bootstrap(LocalDate valuationDate, CreditCurve creditCurve, double fixedTime, boolean useHazardRateIntegral,
+                          double recoveryRate, Optional<Integer> numStepsPerYear, Optional<DailyDiscounts> dailyDfs){
+            this.g = grid(valuationDate, creditCurve.getLiborCurve(), numSteps(numStepsPerYear), dailyDfs);
+            this.hazards = creditCurve.getHazardCurve();
+            this.useHazardRateIntegral = useHazardRateIntegral;
+            this.recoveryRate = recoveryRate;
+            double[][] grid = protectionGrid(g, creditCurve);
+            this.protectionTimes = grid[0];
+            this.protectionDfs = grid[1];
+
+            int from = 1;
+            while (from < g.paymentTimes.length && g.paymentTimes[from] <= fixedTime)
+                from++;
+            this.premiumFrom = from;
+            this.premiumPrefix = from > 1 ? riskyPV01(g, hazards, 1, from) : 0.0;
+            from = 0;
+            while (from < protectionTimes.length - 1 && protectionTimes[from + 1] <= fixedTime)
+                from++;
+            this.protectionFrom = from;
+            this.protectionPrefix = protectionPieces(g, protectionTimes, protectionDfs, hazards, useHazardRateIntegral, 0, from);
+        }
+
+        double[] value(){
+            double fullRPV01 = premiumPrefix + riskyPV01(g, hazards, premiumFrom, g.paymentTimes.length);
+            double protectionPV = protectionPrefix + protectionPieces(g, protectionTimes, protectionDfs, hazards,
+                    useHazardRateIntegral, protectionFrom, protectionTimes.length - 1);
+            return pv(g, fullRPV01, protectionPV * (1.0 - recoveryRate) * notional);
+        }
+    }
+
     public double creditDV01(LocalDate valuationDate, CreditCurve creditCurve,boolean useHazardRateIntegral,
                              Optional<Double> recoveryRate, Optional<Integer> numStepsPerYear){
         /*Calculation of the change in the value of the CDS contract for a
@@ -292,11 +546,7 @@ public final class CDS {
         //full PV
         double v0 = value(valuationDate, creditCurve,useHazardRateIntegral,recoveryRate, numStepsPerYear)[0];
         double bump = 0.0001; //1 bp
-        CreditCurve bumpedCurve = SerializationUtils.clone(creditCurve);
-        for (CDS cds : bumpedCurve.getCdsContracts()){
-            cds.coupon += bump;
-        }
-        bumpedCurve.buildCurve();
+        CreditCurve bumpedCurve = creditCurve.bumped(bump);
         double v1 = value(valuationDate, bumpedCurve,useHazardRateIntegral,recoveryRate, numStepsPerYear)[0];
         return v1 - v0;
     }
@@ -307,16 +557,8 @@ public final class CDS {
         the discount factors and reconstruction of the CDS curve.*/
         double v0 = value(valuationDate, creditCurve,useHazardRateIntegral,recoveryRate, numStepsPerYear)[0];
         double bump = 0.0001; //1 bp
-        CreditCurve newCreditCurve = SerializationUtils.clone(creditCurve);
-        IborCurve bumpedCurve = newCreditCurve.getLiborCurve();
-        List<IborDeposit> depos = bumpedCurve.getDepos();
-        for (IborDeposit depo : depos){
-            depo.depo
-        }
-
+        CreditCurve newCreditCurve = creditCurve.withLiborCurve(creditCurve.getLiborCurve().getBumpedCurve(bump));
+        double v1 = value(valuationDate, newCreditCurve,useHazardRateIntegral,recoveryRate, numStepsPerYear)[0];
+        return v1 - v0;
     }
-
-
-
-
 }
@@ -0,0 +1,111 @@
+package com.finlib.market.credit;
+
+import com.finlib.finutils.DayCount;
+import com.finlib.market.rates.IborCurve;
+import com.finlib.shared.InterpolationType;
+import com.finlib.shared.Interpolator;
+import it.unimi.dsi.fastutil.doubles.DoubleArrayList;
+
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.Optional;
+
+/*Everything a CDS valuation needs that does not depend on the survival curve:
+premium payment times, accrual factors, the protection leg integration times and
+the Libor discount factors on all of them. It is fixed for one valuation date,
+Libor curve, step count and daily discount grid. A curve bootstrap re-prices the
+same contract against the same Libor curve on every solver iteration, so only the
+survival probabilities are interpolated there.
+
+With numSteps == ISDA_STEPS the protection times are the effective date, the
+Libor curve nodes strictly inside the protection period and the maturity, so
+the discount forward is flat between consecutive times.*/
+final class CDSGrid {
+    static final int ISDA_STEPS = 0;
+
+    private final LocalDate valuationDate;
+    private final IborCurve liborCurve;
+    private final int numSteps;
+    private final DailyDiscounts dailyDfs;
+    final double teff;
+    final double tmat;
+    final double accrualFactorPCDToNow;
+    final double[] paymentTimes;
+    final double[] paymentDfs;
+    final double[] accrualFactors;
+    final double[] protectionTimes;
+    final double[] protectionDfs;
+    private final Interpolator zinterp;
+
+    CDSGrid(LocalDate valuationDate, IborCurve liborCurve, int numSteps, LocalDate stepInDate, LocalDate maturityDate,
+            List<LocalDate> adjDates, double[] accrualFactors, DayCount dayCount, Optional<DailyDiscounts> dailyDfs){
+        this.valuationDate = valuationDate;
+        this.liborCurve = liborCurve;
+        this.numSteps = numSteps;
+        this.dailyDfs = dailyDfs.orElse(null);
+        this.accrualFactors = accrualFactors;
+        zinterp = Interpolator.of(InterpolationType.FLAT_FORWARD_RATES,liborCurve.getTimes(),liborCurve.getDiscFactors());
+
+        long stepInDays = ChronoUnit.DAYS.between(valuationDate,stepInDate);
+        long maturityDays = ChronoUnit.DAYS.between(valuationDate,maturityDate);
+        teff = stepInDays / 365.0;
+        tmat = maturityDays / 365.0;
+        accrualFactorPCDToNow = dayCount.yearFrac(stepInDate, adjDates.get(0));
+
+        paymentTimes = new double[adjDates.size()];
+        paymentDfs = new double[adjDates.size()];
+        for (int i = 0; i < paymentTimes.length; i++){
+            long days = ChronoUnit.DAYS.between(valuationDate,adjDates.get(i));
+            paymentTimes[i] = days / 365.0;
+            //the first entry is the previous coupon date, which is never discounted
+            if (i > 0)
+                paymentDfs[i] = df(dailyDfs, days, paymentTimes[i]);
+        }
+
+        if (numSteps == ISDA_STEPS){
+            DoubleArrayList times = new DoubleArrayList();
+            times.add(teff);
+            DoubleArrayList nodes = liborCurve.getTimes();
+            for (int i = 0; i < nodes.size(); i++){
+                if (nodes.getDouble(i) > teff && nodes.getDouble(i) < tmat)
+                    times.add(nodes.getDouble(i));
+            }
+            times.add(tmat);
+            protectionTimes = times.toDoubleArray();
+        } else {
+            protectionTimes = new double[numSteps + 1];
+            double dt = (tmat - teff) / numSteps;
+            double t = teff;
+            for (int i = 0; i <= numSteps; i++){
+                protectionTimes[i] = t;
+                t = t + dt;
+            }
+        }
+        protectionDfs = new double[protectionTimes.length];
+        for (int i = 0; i < protectionTimes.length; i++)
+            protectionDfs[i] = i == 0 ? df(dailyDfs, stepInDays, teff) : zinterp.interpolate(protectionTimes[i]);
+        if (numSteps == ISDA_STEPS)
+            protectionDfs[protectionTimes.length - 1] = df(dailyDfs, maturityDays, tmat);
+    }
+
+    private double df(Optional<DailyDiscounts> dailyDfs, long days, double t){
+        if (dailyDfs.isPresent() && dailyDfs.get().covers(valuationDate, liborCurve, days))
+            return dailyDfs.get().df(days);
+        return zinterp.interpolate(t);
+    }
+
+    boolean isIsda(){
+        return numSteps == ISDA_STEPS;
+    }
+
+    //Libor discount factor off the grid, for credit curve nodes in exact integration
+    double df(double t){
+        return zinterp.interpolate(t);
+    }
+
+    boolean matches(LocalDate valuationDate, IborCurve liborCurve, int numSteps, Optional<DailyDiscounts> dailyDfs){
+        return this.liborCurve == liborCurve && this.numSteps == numSteps && this.dailyDfs == dailyDfs.orElse(null) &&
+                this.valuationDate.equals(valuationDate);
+    }
+}
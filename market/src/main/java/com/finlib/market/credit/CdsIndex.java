@@ -0,0 +1,239 @@
+package com.finlib.market.credit;
+
+import com.finlib.finutils.FinlibException;
+import com.finlib.market.ParallelTasks;
+import org.apache.commons.math4.analysis.solvers.AllowedSolution;
+import org.apache.commons.math4.analysis.solvers.BracketingNthOrderBrentSolver;
+import org.apache.commons.math4.exception.NoBracketingException;
+import org.apache.commons.math4.exception.TooManyEvaluationsException;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+
+/*CDS index such as CDX or iTraxx, valued as the weighted sum of its constituents.
+Every constituent is priced with the index contract's schedule and coupon on its
+own credit curve, so the index contract's grid is shared by all of them. The
+clean risky PV01 and protection leg of each constituent are kept, which lets one
+constituent be repriced on its own when its curve changes.
+
+The intrinsic upfront and spread come from those legs. The basis adjustment is the
+uniform shift of every constituent's hazard rates that reprices the index to its
+market quote. It is solved in one dimension on the shifted hazard curves, without
+rebootstrapping any constituent, and each solve starts from the previous one.
+
+Upfronts are the clean PV of long protection per unit index notional. Legs use the
+exact ISDA protection integral. An index is valued by one thread at a time.*/
+public final class CdsIndex<K> {
+    private static final int CHUNK_SIZE = 8;
+
+    private final CDS indexContract;
+    private final List<K> constituents;
+    private final Map<K, Integer> positions;
+    private final double[] weights;
+    private final double totalWeight;
+    private final double recoveryRate;
+    private final Executor executor;
+
+    private LocalDate valuationDate;
+    private final CreditCurve[] curves;
+    private final double[] cleanRPV01s;
+    private final double[] protections;
+    private double basisAdjustment;
+
+    public static class Builder<K> {
+        private final CDS indexContract;
+        private final Map<K, Double> weights = new LinkedHashMap<>();
+        private double recoveryRate = 0.4;
+        private Executor executor = ForkJoinPool.commonPool();
+
+        public Builder(CDS indexContract){
+            this.indexContract = indexContract;
+        }
+        public Builder<K> add(K constituent, double weight){
+            if (weight <= 0.0)
+                throw new FinlibException("Weight of " + constituent + " must be positive");
+            if (weights.putIfAbsent(constituent, weight) != null)
+                throw new FinlibException("Constituent " + constituent + " added twice");
+            return this;
+        }
+        //Equally weighted constituents
+        public Builder<K> addAll(Collection<K> constituents){
+            for (K constituent : constituents)
+                add(constituent, 1.0);
+            return this;
+        }
+        public Builder<K> withRecoveryRate(double recoveryRate){
+            this.recoveryRate = recoveryRate;
+            return this;
+        }
+        public Builder<K> withExecutor(Executor executor){
+            this.executor = executor;
+            return this;
+        }
+        public CdsIndex<K> build(){
+            if (weights.isEmpty())
+                throw new FinlibException("Index has no constituents");
+            return new CdsIndex<>(this);
+        }
+    }
+
+    private CdsIndex(Builder<K> builder){
+        this.indexContract = builder.indexContract;
+        this.constituents = new ArrayList<>(builder.weights.keySet());
+        this.positions = new HashMap<>();
+        this.weights = new double[constituents.size()];
+        double totalWeight = 0.0;
+        for (int i = 0; i < weights.length; i++){
+            positions.put(constituents.get(i), i);
+            weights[i] = builder.weights.get(constituents.get(i));
+            totalWeight += weights[i];
+        }
+        this.totalWeight = totalWeight;
+        this.recoveryRate = builder.recoveryRate;
+        this.executor = builder.executor;
+        this.curves = new CreditCurve[weights.length];
+        this.cleanRPV01s = new double[weights.length];
+        this.protections = new double[weights.length];
+    }
+
+    //Values every constituent on its curve, one chunk of constituents per task
+    public void valueAll(LocalDate valuationDate, Map<K, CreditCurve> creditCurves){
+        for (K constituent : constituents){
+            if (creditCurves.get(constituent) == null)
+                throw new FinlibException("No credit curve for constituent " + constituent);
+        }
+        for (int i = 0; i < curves.length; i++)
+            curves[i] = creditCurves.get(constituents.get(i));
+        this.valuationDate = valuationDate;
+        ParallelTasks.forEach(weights.length, CHUNK_SIZE, executor, i -> {
+            double[] legs = legs(i, 0.0);
+            cleanRPV01s[i] = legs[0];
+            protections[i] = legs[1];
+        });
+    }
+
+    //Reprices one constituent on its new curve; the others keep their legs
+    public void update(K constituent, CreditCurve creditCurve){
+        if (valuationDate == null)
+            throw new FinlibException("Index must be valued before a constituent is updated");
+        Integer i = positions.get(constituent);
+        if (i == null)
+            throw new FinlibException(constituent + " is not an index constituent");
+        curves[i] = creditCurve;
+        double[] legs = legs(i, 0.0);
+        cleanRPV01s[i] = legs[0];
+        protections[i] = legs[1];
+    }
+
+    public double getIntrinsicUpfront(){
+        checkValued();
+        double upfront = 0.0;
+        for (int i = 0; i < weights.length; i++)
+            upfront += weights[i] * upfront(protections[i], cleanRPV01s[i]);
+        return upfront / totalWeight;
+    }
+
+    //Protection over risky PV01 of the whole index, so each constituent counts by its weighted risky PV01
+    public double getIntrinsicSpread(){
+        checkValued();
+        double protection = 0.0, cleanRPV01 = 0.0;
+        for (int i = 0; i < weights.length; i++){
+            protection += weights[i] * protections[i];
+            cleanRPV01 += weights[i] * cleanRPV01s[i];
+        }
+        return protection * (1.0 - recoveryRate) / cleanRPV01;
+    }
+
+    public double getConstituentUpfront(K constituent){
+        checkValued();
+        Integer i = positions.get(constituent);
+        if (i == null)
+            throw new FinlibException(constituent + " is not an index constituent");
+        return upfront(protections[i], cleanRPV01s[i]);
+    }
+
+    /*Hazard rate shift, added to every segment of every constituent curve, at which
+    the index upfront equals indexUpfront. The shift may be negative down to the
+    smallest constituent hazard rate.*/
+    public double basisAdjustment(double indexUpfront){
+        checkValued();
+        double minHazard = Double.POSITIVE_INFINITY;
+        for (CreditCurve curve : curves){
+            HazardCurve hazards = curve.getHazardCurve();
+            for (int k = 1; k < hazards.getNumNodes(); k++)
+                minHazard = Math.min(minHazard, hazards.hazard(hazards.getTime(k)));
+        }
+        double lower = -minHazard;
+        double upper = CdsQuoteConverter.MAX_HAZARD_RATE;
+        double start = Math.min(Math.max(basisAdjustment, lower), upper);
+        BracketingNthOrderBrentSolver solver = new BracketingNthOrderBrentSolver(1e-14, 1e-12, 5);
+        try {
+            basisAdjustment = solver.solve(100, shift -> adjustedUpfront(shift) - indexUpfront, lower, upper, start,
+                    AllowedSolution.ANY_SIDE);
+        } catch (NoBracketingException | TooManyEvaluationsException e){
+            throw new FinlibException("No hazard rate shift reprices the index to an upfront of " + indexUpfront);
+        }
+        return basisAdjustment;
+    }
+
+    /*Basis adjustment for an index quoted as a spread. The quote is turned into an
+    upfront on a flat hazard rate curve, as the market quote convention does, using
+    the index contract's own schedule and conventions.*/
+    public double basisAdjustmentFromSpread(double indexSpread){
+        checkValued();
+        CdsQuoteConverter converter = new CdsQuoteConverter.Builder(valuationDate, curves[0].getLiborCurve())
+                .withRecoveryRate(recoveryRate).build();
+        double upfront = converter.upfrontFromParSpread(indexContract, indexSpread);
+        if (Double.isNaN(upfront))
+            throw new FinlibException("Index spread " + indexSpread + " has no flat hazard rate");
+        return basisAdjustment(upfront);
+    }
+
+    //Index upfront with every constituent's hazard rates moved by shift
+    public double adjustedUpfront(double shift){
+        checkValued();
+        double[] upfronts = new double[weights.length];
+        ParallelTasks.forEach(weights.length, CHUNK_SIZE, executor, i -> {
+            double[] legs = legs(i, shift);
+            upfronts[i] = weights[i] * upfront(legs[1], legs[0]);
+        });
+        double upfront = 0.0;
+        for (double u : upfronts)
+            upfront += u;
+        return upfront / totalWeight;
+    }
+
+    //Last solved basis adjustment, zero before the first solve
+    public double getBasisAdjustment(){
+        return basisAdjustment;
+    }
+
+    public int size(){
+        return weights.length;
+    }
+
+    //Clean risky PV01 and protection leg before recovery of constituent i per unit notional
+    private double[] legs(int i, double hazardShift){
+        CreditCurve curve = curves[i];
+        HazardCurve hazards = hazardShift == 0.0 ? curve.getHazardCurve() : curve.getHazardCurve().shifted(hazardShift);
+        double[] legs = indexContract.unitLegs(valuationDate, curve, hazards, true, Optional.empty(), Optional.empty());
+        return new double[]{legs[0] - legs[1], legs[2]};
+    }
+
+    private double upfront(double protection, double cleanRPV01){
+        return protection * (1.0 - recoveryRate) - indexContract.getCoupon() * cleanRPV01;
+    }
+
+    private void checkValued(){
+        if (valuationDate == null)
+            throw new FinlibException("Index has not been valued");
+    }
+}
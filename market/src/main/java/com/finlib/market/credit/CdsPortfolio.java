@@ -0,0 +1,202 @@
+package com.finlib.market.credit;
+
+import com.finlib.finutils.*;
+import com.finlib.market.ParallelTasks;
+import com.finlib.market.rates.IborCurve;
+import it.unimi.dsi.fastutil.doubles.DoubleArrayList;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+
+/*Column layout of a CDS book. Trades are grouped by issuer and, within an issuer,
+by coupon schedule: step in date, maturity and the date conventions. All trades of
+a schedule have the same risky PV01 and protection leg per unit notional on one
+issuer curve, so these are computed once per group. The trades are then priced
+from them in a flat loop over coupons, notionals and signs.
+
+Schedules are shared across issuers, so the payment times and Libor discount
+factors of a standard IMM schedule are set up once per valuation. They are read
+from one daily discount grid per Libor curve. Issuers are valued as separate
+tasks on the executor.
+
+PVs are full (dirty) and match CDS.value.*/
+public final class CdsPortfolio<K> {
+    private final int numTrades;
+    private final List<K> issuers;
+    private final Group[][] groups;
+    private final LocalDate lastMaturity;
+    private final Executor executor;
+
+    private static final class ScheduleKey {
+        private final LocalDate stepInDate;
+        private final LocalDate maturityDate;
+        private final FrequencyType freqType;
+        private final DayCountType dayCountType;
+        private final CalendarType calendarType;
+        private final DayAdjustType dayAdjustType;
+        private final DateGenRuleType dateGenRuleType;
+
+        private ScheduleKey(CDS cds){
+            this.stepInDate = cds.getStepInDate();
+            this.maturityDate = cds.getMaturityDate();
+            this.freqType = cds.getFreqType();
+            this.dayCountType = cds.getDayCountType();
+            this.calendarType = cds.getCalendarType();
+            this.dayAdjustType = cds.getDayAdjustType();
+            this.dateGenRuleType = cds.getDateGenRuleType();
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof ScheduleKey)) return false;
+            ScheduleKey that = (ScheduleKey) o;
+            return stepInDate.equals(that.stepInDate) && maturityDate.equals(that.maturityDate) && freqType == that.freqType &&
+                    dayCountType == that.dayCountType && calendarType == that.calendarType &&
+                    dayAdjustType == that.dayAdjustType && dateGenRuleType == that.dateGenRuleType;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(stepInDate, maturityDate, freqType, dayCountType, calendarType, dayAdjustType, dateGenRuleType);
+        }
+    }
+
+    private static final class Group {
+        //the first trade with this schedule in the book; its cached grid serves every issuer
+        private final CDS schedule;
+        private final int[] trades;
+        private final double[] coupons;
+        private final double[] notionals;
+        private final double[] signs;
+
+        private Group(CDS schedule, List<CDS> trades, IntArrayList indices){
+            this.schedule = schedule;
+            this.trades = indices.toIntArray();
+            DoubleArrayList coupons = new DoubleArrayList(), notionals = new DoubleArrayList(), signs = new DoubleArrayList();
+            for (int i : this.trades){
+                CDS cds = trades.get(i);
+                coupons.add(cds.getCoupon());
+                notionals.add(cds.getNotional());
+                signs.add(cds.isLongProtection() ? 1.0 : -1.0);
+            }
+            this.coupons = coupons.toDoubleArray();
+            this.notionals = notionals.toDoubleArray();
+            this.signs = signs.toDoubleArray();
+        }
+
+        private void value(LocalDate valuationDate, CreditCurve creditCurve, boolean useHazardRateIntegral, double recRate,
+                           Optional<Integer> numStepsPerYear, Optional<DailyDiscounts> dailyDfs, double[] pvOut){
+            double[] legs = schedule.unitLegs(valuationDate, creditCurve, useHazardRateIntegral, numStepsPerYear, dailyDfs);
+            double fullRPV01 = legs[0];
+            double protection = legs[2] * (1.0 - recRate);
+            for (int k = 0; k < trades.length; k++)
+                pvOut[trades[k]] = signs[k] * (protection * notionals[k] - coupons[k] * fullRPV01 * notionals[k]);
+        }
+    }
+
+    public static class Builder<K> {
+        private final List<CDS> trades = new ArrayList<>();
+        private final Map<K, Map<ScheduleKey, IntArrayList>> issuers = new LinkedHashMap<>();
+        private final Map<ScheduleKey, CDS> schedules = new HashMap<>();
+        private Executor executor = ForkJoinPool.commonPool();
+
+        //Trades are numbered in the order they are added and pvOut follows the same order
+        public Builder<K> add(K issuer, CDS cds){
+            ScheduleKey key = new ScheduleKey(cds);
+            schedules.putIfAbsent(key, cds);
+            issuers.computeIfAbsent(issuer, k -> new LinkedHashMap<>()).computeIfAbsent(key, k -> new IntArrayList())
+                    .add(trades.size());
+            trades.add(cds);
+            return this;
+        }
+        public Builder<K> addAll(K issuer, List<CDS> trades){
+            for (CDS cds : trades)
+                add(issuer, cds);
+            return this;
+        }
+        public Builder<K> withExecutor(Executor executor){
+            this.executor = executor;
+            return this;
+        }
+        public CdsPortfolio<K> build(){
+            return new CdsPortfolio<>(this);
+        }
+    }
+
+    private CdsPortfolio(Builder<K> builder){
+        this.numTrades = builder.trades.size();
+        this.issuers = new ArrayList<>(builder.issuers.keySet());
+        this.groups = new Group[issuers.size()][];
+        this.executor = builder.executor;
+        LocalDate lastMaturity = LocalDate.MIN;
+        int n = 0;
+        for (Map<ScheduleKey, IntArrayList> issuerGroups : builder.issuers.values()){
+            Group[] blocks = new Group[issuerGroups.size()];
+            int b = 0;
+            for (Map.Entry<ScheduleKey, IntArrayList> entry : issuerGroups.entrySet()){
+                blocks[b++] = new Group(builder.schedules.get(entry.getKey()), builder.trades, entry.getValue());
+                if (entry.getKey().maturityDate.isAfter(lastMaturity))
+                    lastMaturity = entry.getKey().maturityDate;
+            }
+            groups[n++] = blocks;
+        }
+        this.lastMaturity = lastMaturity;
+    }
+
+    public void valueAll(LocalDate valuationDate, Map<K, CreditCurve> creditCurves, boolean useHazardRateIntegral,
+                         Optional<Double> recoveryRate, Optional<Integer> numStepsPerYear, double[] pvOut){
+        if (pvOut.length < numTrades)
+            throw new FinlibException("Output array holds " + pvOut.length + " values for " + numTrades + " trades");
+        double recRate = recoveryRate.orElse(0.4);
+        CreditCurve[] curves = new CreditCurve[issuers.size()];
+        Map<IborCurve, DailyDiscounts> dailyDfs = new IdentityHashMap<>();
+        for (int n = 0; n < curves.length; n++){
+            curves[n] = creditCurves.get(issuers.get(n));
+            if (curves[n] == null)
+                throw new FinlibException("No credit curve for issuer " + issuers.get(n));
+            dailyDfs.computeIfAbsent(curves[n].getLiborCurve(), c -> DailyDiscounts.upTo(valuationDate, c, lastMaturity));
+        }
+
+        ParallelTasks.forEach(curves.length, executor, n -> {
+            CreditCurve creditCurve = curves[n];
+            Optional<DailyDiscounts> discounts = Optional.of(dailyDfs.get(creditCurve.getLiborCurve()));
+            for (Group group : groups[n])
+                group.value(valuationDate, creditCurve, useHazardRateIntegral, recRate, numStepsPerYear, discounts, pvOut);
+        });
+    }
+
+    public double[] valueAll(LocalDate valuationDate, Map<K, CreditCurve> creditCurves, boolean useHazardRateIntegral,
+                             Optional<Double> recoveryRate, Optional<Integer> numStepsPerYear){
+        double[] pvOut = new double[numTrades];
+        valueAll(valuationDate, creditCurves, useHazardRateIntegral, recoveryRate, numStepsPerYear, pvOut);
+        return pvOut;
+    }
+
+    public int size(){
+        return numTrades;
+    }
+
+    //Distinct coupon schedules across all issuers
+    public int getNumSchedules(){
+        int count = 0;
+        IdentityHashMap<CDS, Boolean> seen = new IdentityHashMap<>();
+        for (Group[] issuerGroups : groups){
+            for (Group group : issuerGroups){
+                if (seen.put(group.schedule, Boolean.TRUE) == null)
+                    count++;
+            }
+        }
+        return count;
+    }
+}
@@ -0,0 +1,201 @@
+package com.finlib.market.credit;
+
+import com.finlib.finutils.FinlibException;
+import com.finlib.market.ParallelTasks;
+import com.finlib.market.rates.IborCurve;
+import org.apache.commons.math4.analysis.UnivariateFunction;
+import org.apache.commons.math4.analysis.solvers.AllowedSolution;
+import org.apache.commons.math4.analysis.solvers.BracketingNthOrderBrentSolver;
+import org.apache.commons.math4.exception.NoBracketingException;
+import org.apache.commons.math4.exception.TooManyEvaluationsException;
+
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.IntConsumer;
+
+/*Converts a screen of CDS quotes between par spread, upfront and flat hazard rate
+without building a credit curve per quote. Each quote is a standard contract
+stepping in on the valuation date (CDS.of conventions). Under a flat hazard rate
+the legs have closed forms, so a hazard rate converts directly and a spread or
+upfront needs only a one dimensional solve over those closed forms.
+
+Quotes with the same maturity share one contract and therefore one premium and
+protection grid with its discount factors. The grids are kept across calls. The
+quotes are converted in chunks on the executor.
+
+Par spreads and coupons are running rates. Upfronts are the clean PV of long
+protection per unit notional. Par spreads follow the bootstrap in CreditCurve:
+the coupon that sets the clean PV to zero. A quote with no flat hazard rate in
+[0, MAX_HAZARD_RATE] comes back as NaN.*/
+public final class CdsQuoteConverter {
+    public static final double MAX_HAZARD_RATE = 10.0;
+
+    private final LocalDate valuationDate;
+    private final IborCurve liborCurve;
+    private final double recoveryRate;
+    private final Executor executor;
+    private final int chunkSize;
+    private final Map<LocalDate, CDS> schedules = new HashMap<>();
+
+    public static class Builder {
+        private final LocalDate valuationDate;
+        private final IborCurve liborCurve;
+        private double recoveryRate = 0.4;
+        private Executor executor = ForkJoinPool.commonPool();
+        private int chunkSize = 256;
+
+        public Builder(LocalDate valuationDate, IborCurve liborCurve){
+            this.valuationDate = valuationDate;
+            this.liborCurve = liborCurve;
+        }
+        public Builder withRecoveryRate(double recoveryRate){
+            this.recoveryRate = recoveryRate;
+            return this;
+        }
+        public Builder withExecutor(Executor executor){
+            this.executor = executor;
+            return this;
+        }
+        public Builder withChunkSize(int chunkSize){
+            this.chunkSize = chunkSize;
+            return this;
+        }
+        public CdsQuoteConverter build(){
+            if (chunkSize < 1)
+                throw new FinlibException("Chunk size must be positive");
+            return new CdsQuoteConverter(this);
+        }
+    }
+
+    private CdsQuoteConverter(Builder builder){
+        this.valuationDate = builder.valuationDate;
+        this.liborCurve = builder.liborCurve;
+        this.recoveryRate = builder.recoveryRate;
+        this.executor = builder.executor;
+        this.chunkSize = builder.chunkSize;
+    }
+
+    public double[] parSpreads(LocalDate[] maturities, double[] hazardRates){
+        check(maturities, hazardRates, hazardRates);
+        CDS[] contracts = contracts(maturities);
+        double[] out = new double[maturities.length];
+        run(out.length, i -> out[i] = parSpread(legs(contracts[i], hazardRates[i])));
+        return out;
+    }
+
+    public double[] upfronts(LocalDate[] maturities, double[] hazardRates, double[] coupons){
+        check(maturities, hazardRates, coupons);
+        CDS[] contracts = contracts(maturities);
+        double[] out = new double[maturities.length];
+        run(out.length, i -> out[i] = upfront(legs(contracts[i], hazardRates[i]), coupons[i]));
+        return out;
+    }
+
+    public double[] hazardRatesFromParSpreads(LocalDate[] maturities, double[] parSpreads){
+        check(maturities, parSpreads, parSpreads);
+        CDS[] contracts = contracts(maturities);
+        double[] out = new double[maturities.length];
+        run(out.length, i -> out[i] = solve(h -> parSpread(legs(contracts[i], h)) - parSpreads[i],
+                parSpreads[i] / (1.0 - recoveryRate)));
+        return out;
+    }
+
+    public double[] hazardRatesFromUpfronts(LocalDate[] maturities, double[] upfronts, double[] coupons){
+        check(maturities, upfronts, coupons);
+        CDS[] contracts = contracts(maturities);
+        double[] out = new double[maturities.length];
+        run(out.length, i -> out[i] = hazardFromUpfront(contracts[i], upfronts[i], coupons[i]));
+        return out;
+    }
+
+    public double[] upfrontsFromParSpreads(LocalDate[] maturities, double[] parSpreads, double[] coupons){
+        check(maturities, parSpreads, coupons);
+        CDS[] contracts = contracts(maturities);
+        double[] out = new double[maturities.length];
+        run(out.length, i -> {
+            double h = solve(x -> parSpread(legs(contracts[i], x)) - parSpreads[i], parSpreads[i] / (1.0 - recoveryRate));
+            out[i] = Double.isNaN(h) ? Double.NaN : upfront(legs(contracts[i], h), coupons[i]);
+        });
+        return out;
+    }
+
+    public double[] parSpreadsFromUpfronts(LocalDate[] maturities, double[] upfronts, double[] coupons){
+        check(maturities, upfronts, coupons);
+        CDS[] contracts = contracts(maturities);
+        double[] out = new double[maturities.length];
+        run(out.length, i -> {
+            double h = hazardFromUpfront(contracts[i], upfronts[i], coupons[i]);
+            out[i] = Double.isNaN(h) ? Double.NaN : parSpread(legs(contracts[i], h));
+        });
+        return out;
+    }
+
+    /*Upfront of a given contract quoted at parSpread, on the contract's own schedule,
+    conventions and coupon rather than a standard one for its maturity. NaN when no
+    flat hazard rate gives that spread.*/
+    public double upfrontFromParSpread(CDS contract, double parSpread){
+        double h = solve(x -> parSpread(legs(contract, x)) - parSpread, parSpread / (1.0 - recoveryRate));
+        return Double.isNaN(h) ? Double.NaN : upfront(legs(contract, h), contract.getCoupon());
+    }
+
+    //Distinct maturities seen so far, one contract and grid each
+    public synchronized int getNumSchedules(){
+        return schedules.size();
+    }
+
+    private double hazardFromUpfront(CDS contract, double upfront, double coupon){
+        //credit triangle on the coupon plus the upfront spread over the zero hazard risky duration
+        double[] riskFree = legs(contract, 0.0);
+        double guess = (coupon + upfront / (riskFree[0] - riskFree[1])) / (1.0 - recoveryRate);
+        return solve(h -> upfront(legs(contract, h), coupon) - upfront, guess);
+    }
+
+    private double[] legs(CDS contract, double hazardRate){
+        return contract.flatHazardLegs(valuationDate, liborCurve, hazardRate, Optional.empty());
+    }
+
+    private double parSpread(double[] legs){
+        return legs[2] * (1.0 - recoveryRate) / (legs[0] - legs[1]);
+    }
+
+    private double upfront(double[] legs, double coupon){
+        return legs[2] * (1.0 - recoveryRate) - coupon * (legs[0] - legs[1]);
+    }
+
+    private static double solve(UnivariateFunction f, double guess){
+        BracketingNthOrderBrentSolver solver = new BracketingNthOrderBrentSolver(1e-14, 1e-12, 5);
+        double start = Math.min(Math.max(guess, 1e-8), MAX_HAZARD_RATE * 0.5);
+        try {
+            return solver.solve(100, f, 0.0, MAX_HAZARD_RATE, start, AllowedSolution.ANY_SIDE);
+        } catch (NoBracketingException | TooManyEvaluationsException e){
+            return Double.NaN;
+        }
+    }
+
+    /*One contract per distinct maturity, with its grid built here on the calling
+    thread so the workers only read it.*/
+    private synchronized CDS[] contracts(LocalDate[] maturities){
+        CDS[] contracts = new CDS[maturities.length];
+        for (int i = 0; i < maturities.length; i++){
+            contracts[i] = schedules.computeIfAbsent(maturities[i], m -> {
+                CDS cds = CDS.of(valuationDate, m, 0.0);
+                legs(cds, 0.0);
+                return cds;
+            });
+        }
+        return contracts;
+    }
+
+    private void run(int numQuotes, IntConsumer convert){
+        ParallelTasks.forEach(numQuotes, chunkSize, executor, convert);
+    }
+
+    private static void check(LocalDate[] maturities, double[] quotes, double[] coupons){
+        if (quotes.length != maturities.length || coupons.length != maturities.length)
+            throw new FinlibException("Quote arrays must have one entry per maturity");
+    }
+}
@@ -4,15 +4,17 @@ import com.finlib.finutils.FinlibException;
 import com.finlib.market.rates.IborCurve;
 import com.finlib.market.rates.IborSwap;
 import com.finlib.shared.DiscountCurve;
-import com.finlib.shared.InterpolationType;
 import it.unimi.dsi.fastutil.doubles.DoubleArrayList;
 import org.apache.commons.math4.analysis.UnivariateFunction;
 import org.apache.commons.math4.analysis.differentiation.UnivariateDifferentiableFunction;
 import org.apache.commons.math4.analysis.solvers.*;
+import org.apache.commons.math4.exception.NoBracketingException;
+import org.apache.commons.math4.exception.TooManyEvaluationsException;
 
 import java.io.Serializable;
 import java.time.LocalDate;
 import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
 
@@ -21,62 +23,167 @@ public final class CreditCurve implements Serializable {
     private final IborCurve liborCurve;
     private final List<CDS> cdsContracts;
     private final double recoveryRate;
-    private final InterpolationType interpType;
     private DoubleArrayList times, survProbs;
+    private int solverEvaluations, warmStartFallbacks, coldEvaluations;
+    //solver evaluations of each pillar in the cold build a warm chain started from
+    private int[] coldPillarEvaluations;
+    private HazardCurve hazardCurve;
+
+    private CreditCurve(LocalDate valuationDate,
+                        IborCurve liborCurve,
+                        List<CDS> cdsContracts,
+                        double recoveryRate) {
+        this(valuationDate, liborCurve, cdsContracts, recoveryRate, Optional.empty());
+    }
 
     private CreditCurve(LocalDate valuationDate,
                         IborCurve liborCurve,
                         List<CDS> cdsContracts,
                         double recoveryRate,
-                        InterpolationType interpType) {
+                        Optional<CreditCurve> priorCurve) {
+        this(valuationDate, liborCurve, cdsContracts, recoveryRate, priorCurve, 0, Optional.empty());
+    }
+
+    //Pillars before firstPillar are taken as solved from the prior curve
+    private CreditCurve(LocalDate valuationDate,
+                        IborCurve liborCurve,
+                        List<CDS> cdsContracts,
+                        double recoveryRate,
+                        Optional<CreditCurve> priorCurve,
+                        int firstPillar,
+                        Optional<DailyDiscounts> dailyDfs) {
 
         this.valuationDate = valuationDate;
         this.liborCurve = liborCurve;
         this.cdsContracts = cdsContracts;
         this.recoveryRate = recoveryRate;
-        this.interpType = interpType;
-        assert !cdsContracts.isEmpty() : "CDS contracts are needed for CreditCurve";
-        assert valuationDate.equals(liborCurve.getValuationDate()) : "Valuation date of credit curve and Libor curve do not match";
-        assert validate() : "CDS Contracts are not in increasing order";
-        buildCurve();
+        if (cdsContracts.isEmpty())
+            throw new FinlibException("CDS contracts are needed for CreditCurve");
+        if (!valuationDate.equals(liborCurve.getValuationDate()))
+            throw new FinlibException("Valuation date of credit curve and Libor curve do not match");
+        if (!validate())
+            throw new FinlibException("CDS contracts must mature after the valuation date in strictly increasing order");
+        buildCurve(priorCurve, firstPillar, dailyDfs);
+    }
+
+    //Copy of curve with the survival probability at one pillar replaced; nothing is solved
+    private CreditCurve(CreditCurve curve, int tenorIndex, double survProb){
+        this.valuationDate = curve.valuationDate;
+        this.liborCurve = curve.liborCurve;
+        this.cdsContracts = curve.cdsContracts;
+        this.recoveryRate = curve.recoveryRate;
+        this.coldPillarEvaluations = curve.coldPillarEvaluations;
+        this.times = new DoubleArrayList(curve.times);
+        this.survProbs = new DoubleArrayList(curve.survProbs);
+        survProbs.set(tenorIndex + 1, survProb);
+        this.hazardCurve = new HazardCurve(times.size());
+        for (int k = 1; k < times.size(); k++)
+            hazardCurve.add(times.getDouble(k), -Math.log(survProbs.getDouble(k)));
     }
 
     public static CreditCurve of(LocalDate valuationDate,
                                  IborCurve liborCurve,
                                  List<CDS> cdsContracts){
-        return new CreditCurve(valuationDate, liborCurve,cdsContracts,0.4,InterpolationType.FLAT_FORWARD_RATES);
+        return new CreditCurve(valuationDate, liborCurve,cdsContracts,0.4);
+    }
+
+    //Discount factors on the contract dates are read from a grid shared with other issuers
+    static CreditCurve of(LocalDate valuationDate,
+                          IborCurve liborCurve,
+                          List<CDS> cdsContracts,
+                          DailyDiscounts dailyDfs){
+        return new CreditCurve(valuationDate, liborCurve,cdsContracts,0.4,
+                Optional.empty(), 0, Optional.of(dailyDfs));
+    }
+
+    /*Warm starts every survival probability solve from the prior curve, for
+    example yesterday's curve or the previous intraday build of the same issuer.*/
+    public static CreditCurve of(LocalDate valuationDate,
+                                 IborCurve liborCurve,
+                                 List<CDS> cdsContracts,
+                                 CreditCurve priorCurve){
+        return new CreditCurve(valuationDate, liborCurve,cdsContracts,0.4,
+                Optional.of(priorCurve));
+    }
+
+    /*Curve rebuilt with every CDS spread moved by spreadBump. The Libor curve is shared
+    and each pillar is solved warm from this curve.*/
+    public CreditCurve bumped(double spreadBump){
+        List<CDS> contracts = new ArrayList<>(cdsContracts.size());
+        for (CDS cds : cdsContracts)
+            contracts.add(cds.withCoupon(cds.getCoupon() + spreadBump));
+        return new CreditCurve(valuationDate, liborCurve, contracts, recoveryRate, Optional.of(this));
+    }
+
+    /*Curve rebuilt with the spread of one tenor moved by bump. Survival probabilities
+    before that tenor cannot change, so they are copied and only the pillars from it
+    onwards are solved again.*/
+    public CreditCurve bumpedAt(int tenorIndex, double bump){
+        if (tenorIndex < 0 || tenorIndex >= cdsContracts.size())
+            throw new FinlibException("Tenor index " + tenorIndex + " out of range for " + cdsContracts.size() + " contracts");
+        List<CDS> contracts = new ArrayList<>(cdsContracts);
+        CDS cds = contracts.get(tenorIndex);
+        contracts.set(tenorIndex, cds.withCoupon(cds.getCoupon() + bump));
+        return new CreditCurve(valuationDate, liborCurve, contracts, recoveryRate, Optional.of(this), tenorIndex,
+                Optional.empty());
+    }
+
+    //Same contracts bootstrapped against another Libor curve, each pillar warm started from this curve
+    public CreditCurve withLiborCurve(IborCurve liborCurve){
+        return new CreditCurve(valuationDate, liborCurve, cdsContracts, recoveryRate, Optional.of(this));
+    }
+
+    /*Curve with the survival probability at one pillar set to survProb and every other
+    pillar kept, for scenarios on the curve itself. That pillar's contract no longer
+    reprices to zero.*/
+    public CreditCurve withSurvivalProbability(int tenorIndex, double survProb){
+        if (tenorIndex < 0 || tenorIndex >= cdsContracts.size())
+            throw new FinlibException("Tenor index " + tenorIndex + " out of range for " + cdsContracts.size() + " contracts");
+        if (!(survProb > 0.0 && survProb <= 1.0))
+            throw new FinlibException("Survival probability " + survProb + " is not in (0, 1]");
+        return new CreditCurve(this, tenorIndex, survProb);
     }
 
     public IborCurve getLiborCurve(){return liborCurve;}
     public DoubleArrayList getTimes(){return times;}
     public DoubleArrayList getSurvProbs(){return survProbs;}
     public List<CDS> getCdsContracts(){return cdsContracts;}
+    public int getSolverEvaluations(){return solverEvaluations;}
+    public int getWarmStartFallbacks(){return warmStartFallbacks;}
+    public int getSolverEvaluationsSaved(){return Math.max(coldEvaluations - solverEvaluations, 0);}
+
+    //Same nodes as times and survProbs; follows the bootstrap as pillars are added and solved
+    public HazardCurve getHazardCurve(){return hazardCurve;}
 
     private boolean validate() {
-        //Ensure that contracts are in increasing maturity
-        LocalDate matDate = cdsContracts.get(0).getMaturityDate();
+        //Ensure that contracts are in strictly increasing maturity, as every pillar needs a segment of its own
+        LocalDate matDate = valuationDate;
         for (CDS cds : cdsContracts){
-            if (cds.getMaturityDate().isBefore(matDate))
+            if (!cds.getMaturityDate().isAfter(matDate))
                 return false;
             matDate = cds.getMaturityDate();
         }
         return true;
     }
 
+    /*Only the survival probability of the last pillar moves while it is solved, so
+    the contract's premium periods and protection pieces up to the previous pillar
+    are priced once and each evaluation reprices the last segment only.*/
     private static class CDSFunction implements UnivariateFunction {
-        LocalDate valuationDate;
         private CreditCurve creditCurve;
-        private CDS cds;
-        CDSFunction(LocalDate valuationDate, CreditCurve creditCurve, CDS cds){
-            this.valuationDate = valuationDate;
+        private CDS.Bootstrap pricer;
+        CDSFunction(LocalDate valuationDate, CreditCurve creditCurve, CDS cds, Optional<DailyDiscounts> dailyDfs){
             this.creditCurve = creditCurve;
-            this.cds = cds;
+            int numPoints = creditCurve.times.size();
+            this.pricer = cds.bootstrap(valuationDate, creditCurve, creditCurve.times.getDouble(numPoints - 2), true,
+                    0.4, Optional.empty(), dailyDfs);
         }
         @Override
         public double value(double q) {
             int numPoints = creditCurve.times.size();
             creditCurve.survProbs.set(numPoints-1,q);
-            double v_cds = cds.value(valuationDate,creditCurve,true,Optional.of(0.4), Optional.of(25))[1];
+            creditCurve.hazardCurve.setLast(-Math.log(q));
+            double v_cds = pricer.value()[1];
             return v_cds;
         }
     }
@@ -92,16 +199,33 @@ public final class CreditCurve implements Serializable {
 
 
     public void buildCurve(){
-        times = new DoubleArrayList(cdsContracts.size());
-        survProbs = new DoubleArrayList(cdsContracts.size());
-        times.add(0.0);
-        survProbs.add(1.0);
-        for (int i = 0; i < cdsContracts.size(); i++){
+        buildCurve(Optional.empty(), 0, Optional.empty());
+    }
+
+    private void buildCurve(Optional<CreditCurve> priorCurve, int firstPillar, Optional<DailyDiscounts> dailyDfs){
+        double warmStartWidth = 0.01;
+        Optional<HazardCurve> priorHazards = priorCurve.map(CreditCurve::getHazardCurve);
+        solverEvaluations = 0;
+        warmStartFallbacks = 0;
+        int[] pillarEvaluations = new int[cdsContracts.size()];
+        times = new DoubleArrayList(cdsContracts.size() + 1);
+        survProbs = new DoubleArrayList(cdsContracts.size() + 1);
+        if (firstPillar > 0){
+            times.addElements(0, priorCurve.get().times.elements(), 0, firstPillar + 1);
+            survProbs.addElements(0, priorCurve.get().survProbs.elements(), 0, firstPillar + 1);
+            hazardCurve = HazardCurve.prefix(priorHazards.get(), firstPillar + 1, cdsContracts.size() + 1);
+        } else {
+            times.add(0.0);
+            survProbs.add(1.0);
+            hazardCurve = new HazardCurve(cdsContracts.size() + 1);
+        }
+        for (int i = firstPillar; i < cdsContracts.size(); i++){
             LocalDate matDate = cdsContracts.get(i).getMaturityDate();
             double tmat = ChronoUnit.DAYS.between(valuationDate,matDate)/365.0;
             double q = survProbs.getDouble(i);
             times.add(tmat);
             survProbs.add(q);
+            hazardCurve.add(tmat, -Math.log(q));
 
             /*double it = q;
             boolean boundsFound = false;
@@ -115,12 +239,36 @@ public final class CreditCurve implements Serializable {
             if (!boundsFound)
                 throw new FinlibException("Could not find bounds for minimization of CDS..check your inputs");*/
 
-            BracketingNthOrderBrentSolver solver = new BracketingNthOrderBrentSolver();
-            q = solver.solve(100, new CreditCurve.CDSFunction(valuationDate,this,cdsContracts.get(i)), 0.001, q,  AllowedSolution.ABOVE_SIDE);
-
-
-
+            int evaluationsBefore = solverEvaluations;
+            BracketingNthOrderBrentSolver solver = new BracketingNthOrderBrentSolver(1e-14, 1e-12, 5);
+            CDSFunction f = new CreditCurve.CDSFunction(valuationDate,this,cdsContracts.get(i),dailyDfs);
+            double qMax = q;
+            q = Double.NaN;
+            if (priorHazards.isPresent()) {
+                double guess = Math.min(priorHazards.get().survival(tmat), qMax);
+                try {
+                    q = solver.solve(100, f, guess * (1.0 - warmStartWidth), Math.min(guess * (1.0 + warmStartWidth), qMax),
+                            guess, AllowedSolution.ABOVE_SIDE);
+                } catch (NoBracketingException | TooManyEvaluationsException e) {
+                    warmStartFallbacks++;
+                }
+                solverEvaluations += solver.getEvaluations();
+            }
+            if (Double.isNaN(q)) {
+                q = solver.solve(100, f, 0.001, qMax, AllowedSolution.ABOVE_SIDE);
+                solverEvaluations += solver.getEvaluations();
+            }
+            survProbs.set(i + 1, q);
+            hazardCurve.setLast(-Math.log(q));
+            pillarEvaluations[i] = solverEvaluations - evaluationsBefore;
         }
+        /*Savings are counted only over the pillars solved here, so a rebuild from
+        firstPillar is compared with what the cold build spent on those pillars.*/
+        coldPillarEvaluations = priorCurve.isPresent() && priorCurve.get().coldPillarEvaluations.length == pillarEvaluations.length
+                ? priorCurve.get().coldPillarEvaluations : pillarEvaluations;
+        coldEvaluations = 0;
+        for (int i = firstPillar; i < cdsContracts.size(); i++)
+            coldEvaluations += coldPillarEvaluations[i];
     }
 
 
@@ -0,0 +1,30 @@
+package com.finlib.market.credit;
+
+import java.util.Collections;
+import java.util.Map;
+
+/*Output of CreditCurveFactory.buildAll: the curves that built, the error of each
+issuer that did not, and the bootstrap wall time of every issuer. Maps iterate in
+the order the issuers were given.*/
+public final class CreditCurveBatch<K> {
+    private final Map<K, CreditCurve> curves;
+    private final Map<K, Throwable> failures;
+    private final Map<K, Long> buildNanos;
+    private final long elapsedNanos;
+
+    CreditCurveBatch(Map<K, CreditCurve> curves, Map<K, Throwable> failures, Map<K, Long> buildNanos, long elapsedNanos){
+        this.curves = Collections.unmodifiableMap(curves);
+        this.failures = Collections.unmodifiableMap(failures);
+        this.buildNanos = Collections.unmodifiableMap(buildNanos);
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    public Map<K, CreditCurve> getCurves(){ return curves;}
+    public CreditCurve getCurve(K issuer){ return curves.get(issuer);}
+    public Map<K, Throwable> getFailures(){ return failures;}
+    public boolean hasFailures(){ return !failures.isEmpty();}
+    public Map<K, Long> getBuildNanos(){ return buildNanos;}
+    public long getElapsedNanos(){ return elapsedNanos;}
+    //Sum of issuer build times, i.e. the single-threaded cost of the batch
+    public long getBusyNanos(){ return buildNanos.values().stream().mapToLong(Long::longValue).sum();}
+}
@@ -0,0 +1,65 @@
+package com.finlib.market.credit;
+
+import com.finlib.market.ParallelTasks;
+import com.finlib.market.rates.IborCurve;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+
+/*Builds the credit curves of many issuers against one Libor curve. The Libor
+discount factors on every day up to the longest maturity are interpolated once
+and shared by all contracts, then each issuer is bootstrapped as its own task.
+An issuer whose contracts are invalid or whose bootstrap fails is reported in the
+batch and does not stop the others. Errors are not caught and fail the whole batch.*/
+public final class CreditCurveFactory {
+    private CreditCurveFactory(){}
+
+    public static <K> CreditCurveBatch<K> buildAll(LocalDate valuationDate, IborCurve liborCurve, Map<K, List<CDS>> contracts){
+        return buildAll(valuationDate, liborCurve, contracts, ForkJoinPool.commonPool());
+    }
+
+    public static <K> CreditCurveBatch<K> buildAll(LocalDate valuationDate, IborCurve liborCurve, Map<K, List<CDS>> contracts,
+                                                   Executor executor){
+        long start = System.nanoTime();
+        LocalDate lastMaturity = valuationDate;
+        for (List<CDS> issuerContracts : contracts.values()){
+            for (CDS cds : issuerContracts){
+                if (cds.getMaturityDate().isAfter(lastMaturity))
+                    lastMaturity = cds.getMaturityDate();
+            }
+        }
+        DailyDiscounts dailyDfs = DailyDiscounts.upTo(valuationDate, liborCurve, lastMaturity);
+
+        List<K> issuers = new ArrayList<>(contracts.keySet());
+        CreditCurve[] curves = new CreditCurve[issuers.size()];
+        RuntimeException[] failures = new RuntimeException[issuers.size()];
+        long[] nanos = new long[issuers.size()];
+        //every task catches its own failure, so this only throws an Error
+        ParallelTasks.forEach(issuers.size(), executor, k -> {
+            long t0 = System.nanoTime();
+            try {
+                curves[k] = CreditCurve.of(valuationDate, liborCurve, contracts.get(issuers.get(k)), dailyDfs);
+            } catch (RuntimeException e){
+                failures[k] = e;
+            }
+            nanos[k] = System.nanoTime() - t0;
+        });
+
+        Map<K, CreditCurve> built = new LinkedHashMap<>();
+        Map<K, Throwable> failed = new LinkedHashMap<>();
+        Map<K, Long> buildNanos = new LinkedHashMap<>();
+        for (int i = 0; i < curves.length; i++){
+            if (failures[i] != null)
+                failed.put(issuers.get(i), failures[i]);
+            else
+                built.put(issuers.get(i), curves[i]);
+            buildNanos.put(issuers.get(i), nanos[i]);
+        }
+        return new CreditCurveBatch<>(built, failed, buildNanos, System.nanoTime() - start);
+    }
+}
@@ -0,0 +1,49 @@
+package com.finlib.market.credit;
+
+import com.finlib.market.rates.IborCurve;
+import com.finlib.shared.InterpolationType;
+import com.finlib.shared.Interpolator;
+
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+
+/*Libor discount factors on every day from the valuation date up to a horizon, at
+the same days / 365 times CDSGrid uses. Standard CDS contracts pay on a handful of
+common dates, so when many issuers are built on one Libor curve each of those
+dates is interpolated once for the whole batch instead of once per contract.
+Read-only once built and shared between threads.*/
+final class DailyDiscounts {
+    //contracts can pay a few days after maturity once the last date is business day adjusted
+    private static final int HORIZON_SLACK_DAYS = 10;
+
+    private final LocalDate valuationDate;
+    private final IborCurve liborCurve;
+    private final double[] dfs;
+
+    DailyDiscounts(LocalDate valuationDate, IborCurve liborCurve, int numDays){
+        this.valuationDate = valuationDate;
+        this.liborCurve = liborCurve;
+        Interpolator zinterp = Interpolator.of(InterpolationType.FLAT_FORWARD_RATES,liborCurve.getTimes(),liborCurve.getDiscFactors());
+        dfs = new double[numDays + 1];
+        for (int d = 0; d <= numDays; d++)
+            dfs[d] = zinterp.interpolate(d / 365.0);
+    }
+
+    //Covers every payment of contracts maturing on or before lastMaturity
+    static DailyDiscounts upTo(LocalDate valuationDate, IborCurve liborCurve, LocalDate lastMaturity){
+        long days = Math.max(ChronoUnit.DAYS.between(valuationDate, lastMaturity), 0);
+        return new DailyDiscounts(valuationDate, liborCurve, (int) days + HORIZON_SLACK_DAYS);
+    }
+
+    boolean covers(LocalDate valuationDate, IborCurve liborCurve, long day){
+        return this.liborCurve == liborCurve && this.valuationDate.equals(valuationDate) && day >= 0 && day < dfs.length;
+    }
+
+    double df(long day){
+        return dfs[(int) day];
+    }
+
+    int getNumDays(){
+        return dfs.length - 1;
+    }
+}
@@ -0,0 +1,121 @@
+package com.finlib.market.credit;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+/*Piecewise-constant hazard rate curve stored as the cumulative hazard at each node,
+starting from zero at time zero. Between nodes the hazard rate is flat, so
+survival(t) is one binary search and one exp, and hazard(t) reads the stored rate
+of the segment. Beyond the last node the last rate continues, as does the first
+rate before time zero. This is the same curve as log-linear interpolation of the
+survival probabilities, without a log on every lookup.
+
+A credit curve bootstrap appends a node per pillar and moves the last one while
+it solves, so the curve is mutable inside the package.*/
+public final class HazardCurve implements Serializable {
+    private double[] times;
+    private double[] cumHazards;
+    //hazard rate of the segment ending at node k, hazards[0] is unused
+    private double[] hazards;
+    private int size;
+
+    HazardCurve(int capacity){
+        times = new double[Math.max(capacity, 2)];
+        cumHazards = new double[times.length];
+        hazards = new double[times.length];
+        size = 1;
+    }
+
+    static HazardCurve flat(double hazardRate){
+        HazardCurve curve = new HazardCurve(2);
+        curve.add(1.0, hazardRate);
+        return curve;
+    }
+
+    //Copy of the first numNodes nodes of another curve, with room for capacity nodes
+    static HazardCurve prefix(HazardCurve curve, int numNodes, int capacity){
+        HazardCurve copy = new HazardCurve(Math.max(capacity, numNodes));
+        System.arraycopy(curve.times, 0, copy.times, 0, numNodes);
+        System.arraycopy(curve.cumHazards, 0, copy.cumHazards, 0, numNodes);
+        System.arraycopy(curve.hazards, 0, copy.hazards, 0, numNodes);
+        copy.size = numNodes;
+        return copy;
+    }
+
+    //Same nodes with every segment's hazard rate moved by shift
+    public HazardCurve shifted(double shift){
+        HazardCurve curve = prefix(this, size, size);
+        for (int k = 1; k < size; k++){
+            curve.cumHazards[k] += shift * times[k];
+            curve.hazards[k] += shift;
+        }
+        return curve;
+    }
+
+    void add(double time, double cumHazard){
+        if (size == times.length){
+            times = Arrays.copyOf(times, 2 * size);
+            cumHazards = Arrays.copyOf(cumHazards, 2 * size);
+            hazards = Arrays.copyOf(hazards, 2 * size);
+        }
+        times[size] = time;
+        size++;
+        setLast(cumHazard);
+    }
+
+    void setLast(double cumHazard){
+        int k = size - 1;
+        cumHazards[k] = cumHazard;
+        hazards[k] = (cumHazard - cumHazards[k - 1]) / (times[k] - times[k - 1]);
+    }
+
+    public double survival(double t){
+        return Math.exp(-cumulativeHazard(t));
+    }
+
+    //Survival at each time; runs of increasing times walk the segments instead of searching
+    public double[] survival(double[] t){
+        double[] q = new double[t.length];
+        if (size == 1){
+            Arrays.fill(q, 1.0);
+            return q;
+        }
+        int k = 1;
+        for (int i = 0; i < t.length; i++){
+            if (i == 0 || t[i] < t[i - 1]){
+                k = segment(t[i]);
+            } else {
+                while (k < size - 1 && t[i] > times[k])
+                    k++;
+            }
+            q[i] = Math.exp(-cumulativeHazard(t[i], k));
+        }
+        return q;
+    }
+
+    public double cumulativeHazard(double t){
+        return size == 1 ? 0.0 : cumulativeHazard(t, segment(t));
+    }
+
+    private double cumulativeHazard(double t, int k){
+        if (t == times[k])
+            return cumHazards[k];
+        return cumHazards[k - 1] + hazards[k] * (t - times[k - 1]);
+    }
+
+    public double hazard(double t){
+        return size == 1 ? 0.0 : hazards[segment(t)];
+    }
+
+    public int getNumNodes(){ return size;}
+    public double getTime(int node){ return times[node];}
+    public double getCumulativeHazard(int node){ return cumHazards[node];}
+
+    //Node k such that t lies in (times[k - 1], times[k]], clamped to the first and last segments
+    private int segment(double t){
+        int k = Arrays.binarySearch(times, 1, size, t);
+        if (k < 0)
+            k = -k - 1;
+        return Math.min(Math.max(k, 1), size - 1);
+    }
+}
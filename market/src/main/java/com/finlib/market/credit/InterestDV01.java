@@ -0,0 +1,99 @@
+package com.finlib.market.credit;
+
+import com.finlib.finutils.FinlibException;
+import com.finlib.market.ParallelTasks;
+import com.finlib.market.rates.IborCurve;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+
+/*Interest rate DV01 of a CDS book whose issuer curves are all built on one Libor
+curve. The bumped Libor curve is built once when the calculator is built and
+shared by every issuer. Each distinct credit curve is re-bootstrapped against it
+once, warm started from its unbumped solve, with one task per issuer on the
+executor. The trades of that issuer are valued in the same task.*/
+public final class InterestDV01 {
+    private final IborCurve liborCurve;
+    private final IborCurve bumpedLiborCurve;
+    private final Executor executor;
+
+    public static class Builder {
+        private final IborCurve liborCurve;
+        private double bump = 0.0001;
+        private Executor executor = ForkJoinPool.commonPool();
+
+        public Builder(IborCurve liborCurve){
+            this.liborCurve = liborCurve;
+        }
+        public Builder withBump(double bump){
+            this.bump = bump;
+            return this;
+        }
+        public Builder withExecutor(Executor executor){
+            this.executor = executor;
+            return this;
+        }
+        public InterestDV01 build(){
+            return new InterestDV01(this);
+        }
+    }
+
+    private InterestDV01(Builder builder){
+        this.liborCurve = builder.liborCurve;
+        this.bumpedLiborCurve = builder.liborCurve.getBumpedCurve(builder.bump);
+        this.executor = builder.executor;
+    }
+
+    public IborCurve getBumpedLiborCurve(){
+        return bumpedLiborCurve;
+    }
+
+    //Issuer curves rebuilt on the bumped Libor curve, in the order given
+    public List<CreditCurve> bumpedCurves(List<CreditCurve> creditCurves){
+        checkLiborCurves(creditCurves);
+        CreditCurve[] bumped = new CreditCurve[creditCurves.size()];
+        ParallelTasks.forEach(bumped.length, executor, k -> bumped[k] = creditCurves.get(k).withLiborCurve(bumpedLiborCurve));
+        return List.of(bumped);
+    }
+
+    /*Full PV change of each trade, valued on the curve at the same position in
+    creditCurves. Trades that share a curve instance share its rebuild.*/
+    public double[] value(LocalDate valuationDate, List<CDS> trades, List<CreditCurve> creditCurves,
+                          boolean useHazardRateIntegral, Optional<Double> recoveryRate, Optional<Integer> numStepsPerYear){
+        if (trades.size() != creditCurves.size())
+            throw new FinlibException(trades.size() + " trades but " + creditCurves.size() + " credit curves");
+        checkLiborCurves(creditCurves);
+        Map<CreditCurve, IntArrayList> issuers = new IdentityHashMap<>();
+        for (int i = 0; i < trades.size(); i++)
+            issuers.computeIfAbsent(creditCurves.get(i), k -> new IntArrayList()).add(i);
+
+        double[] dv01 = new double[trades.size()];
+        List<Map.Entry<CreditCurve, IntArrayList>> entries = new ArrayList<>(issuers.entrySet());
+        ParallelTasks.forEach(entries.size(), executor, n -> {
+            Map.Entry<CreditCurve, IntArrayList> issuer = entries.get(n);
+            CreditCurve creditCurve = issuer.getKey();
+            CreditCurve bumpedCurve = creditCurve.withLiborCurve(bumpedLiborCurve);
+            //all base values first, so each contract's cached grid is rebuilt once per curve
+            int[] tradeIndices = issuer.getValue().toIntArray();
+            for (int i : tradeIndices)
+                dv01[i] = -trades.get(i).value(valuationDate, creditCurve, useHazardRateIntegral, recoveryRate, numStepsPerYear)[0];
+            for (int i : tradeIndices)
+                dv01[i] += trades.get(i).value(valuationDate, bumpedCurve, useHazardRateIntegral, recoveryRate, numStepsPerYear)[0];
+        });
+        return dv01;
+    }
+
+    private void checkLiborCurves(List<CreditCurve> creditCurves){
+        for (CreditCurve creditCurve : creditCurves){
+            if (creditCurve.getLiborCurve() != liborCurve)
+                throw new FinlibException("Credit curve is built on a different Libor curve");
+        }
+    }
+}
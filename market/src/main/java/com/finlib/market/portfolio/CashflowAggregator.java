@@ -0,0 +1,194 @@
+package com.finlib.market.portfolio;
+
+import com.finlib.finutils.FinlibException;
+import com.finlib.market.rates.FixedLeg;
+import com.finlib.market.rates.FloatLeg;
+import com.finlib.market.rates.IborSwap;
+import com.finlib.market.rates.SwapType;
+import com.finlib.shared.DiscountCurve;
+import it.unimi.dsi.fastutil.ints.Int2DoubleMap;
+import it.unimi.dsi.fastutil.ints.Int2DoubleOpenHashMap;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+
+/*Nets the future cash flows of a book into one ladder per (currency, discount
+curve), keyed by payment epoch day. Float flows are projected when a swap is
+added, so a ladder holds plain amounts and each distinct payment date is
+discounted once however many trades pay on it. The discount factors of a ladder
+are reused across parallel shifts of the discount curve; projected amounts are
+not re-projected under the shift.
+
+Not thread-safe: fill the aggregator on one thread, or use one per thread and merge.*/
+public final class CashflowAggregator {
+    private final LocalDate valuationDate;
+    private final int valuationDay;
+    private final Map<LadderKey, Int2DoubleOpenHashMap> ladders = new LinkedHashMap<>();
+
+    public static final class LadderKey {
+        private final String currency;
+        private final String curve;
+
+        private LadderKey(String currency, String curve){
+            this.currency = currency;
+            this.curve = curve;
+        }
+
+        public static LadderKey of(String currency, String curve){
+            return new LadderKey(currency, curve);
+        }
+
+        public String getCurrency(){ return currency;}
+        public String getCurve(){ return curve;}
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof LadderKey)) return false;
+            LadderKey that = (LadderKey) o;
+            return currency.equals(that.currency) && curve.equals(that.curve);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(currency, curve);
+        }
+
+        @Override
+        public String toString() {
+            return currency + "/" + curve;
+        }
+    }
+
+    public CashflowAggregator(LocalDate valuationDate){
+        this.valuationDate = valuationDate;
+        this.valuationDay = (int) valuationDate.toEpochDay();
+    }
+
+    //Flows on or before the valuation date are dropped, as in the leg valuations
+    public void add(String currency, String curve, LocalDate paymentDate, double amount){
+        int day = (int) paymentDate.toEpochDay();
+        if (day > valuationDay)
+            ladder(currency, curve).addTo(day, amount);
+    }
+
+    public void add(String currency, String curve, IborSwap swap, DiscountCurve indexCurve, Optional<Double> firstFixing){
+        Int2DoubleOpenHashMap ladder = ladder(currency, curve);
+
+        FixedLeg fixedLeg = swap.getFixedLeg();
+        double sign = fixedLeg.getLegType() == SwapType.PAY ? -1.0 : 1.0;
+        int numPayments = fixedLeg.getPaymentDates().size();
+        for (int i = 0; i < numPayments; i++){
+            int day = (int) fixedLeg.getPaymentDates().get(i).toEpochDay();
+            if (day <= valuationDay)
+                continue;
+            double amount = fixedLeg.getPayments().getDouble(i);
+            if (i == numPayments - 1)
+                amount += fixedLeg.getPrincipal() * fixedLeg.getNotional();
+            ladder.addTo(day, sign * amount);
+        }
+
+        FloatLeg floatLeg = swap.getFloatLeg();
+        sign = floatLeg.getLegType() == SwapType.PAY ? -1.0 : 1.0;
+        numPayments = floatLeg.getPaymentDates().size();
+        boolean firstPayment = false;
+        for (int i = 0; i < numPayments; i++){
+            int day = (int) floatLeg.getPaymentDates().get(i).toEpochDay();
+            if (day <= valuationDay)
+                continue;
+            double alpha = floatLeg.getYearFracs().getDouble(i);
+            double fwdRate;
+            if (firstPayment == false && firstFixing.isPresent()){
+                fwdRate = firstFixing.get();
+                firstPayment = true;
+            } else {
+                double dfStart = indexCurve.df(floatLeg.getStartAccrueDates().get(i));
+                double dfEnd = indexCurve.df(floatLeg.getEndAccrueDates().get(i));
+                fwdRate = (dfStart / dfEnd - 1.0) / alpha;
+            }
+            double amount = (fwdRate + floatLeg.getSpread()) * alpha * floatLeg.getNotional();
+            if (i == numPayments - 1)
+                amount += floatLeg.getPrincipal() * floatLeg.getNotional();
+            ladder.addTo(day, sign * amount);
+        }
+    }
+
+    public Set<LadderKey> getLadders(){
+        return ladders.keySet();
+    }
+
+    public int getNumDates(String currency, String curve){
+        Int2DoubleOpenHashMap ladder = ladders.get(LadderKey.of(currency, curve));
+        return ladder == null ? 0 : ladder.size();
+    }
+
+    public double value(String currency, String curve, DiscountCurve discountCurve){
+        return parallelShift(currency, curve, discountCurve, new double[]{0.0})[0];
+    }
+
+    /*PV of the ladder with the discount curve's zero rates moved by each of the given
+    continuously compounded shifts. The discount factor of each date is looked up once
+    and shared by all scenarios.*/
+    public double[] parallelShift(String currency, String curve, DiscountCurve discountCurve, double[] shifts){
+        Int2DoubleOpenHashMap ladder = ladders.get(LadderKey.of(currency, curve));
+        if (ladder == null)
+            throw new FinlibException("No cash flows for " + currency + "/" + curve);
+        int numDates = ladder.size();
+        double[] times = new double[numDates];
+        double[] pvs = new double[numDates];
+        int k = 0;
+        for (Int2DoubleMap.Entry entry : ladder.int2DoubleEntrySet()){
+            times[k] = discountCurve.yearFrac(LocalDate.ofEpochDay(entry.getIntKey()));
+            pvs[k] = entry.getDoubleValue() * discountCurve.df(times[k]);
+            k++;
+        }
+        double tVal = discountCurve.yearFrac(valuationDate);
+        double dfValDt = discountCurve.df(tVal);
+
+        double[] result = new double[shifts.length];
+        for (int s = 0; s < shifts.length; s++){
+            double shift = shifts[s];
+            double sum = 0.0;
+            if (shift == 0.0){
+                for (int i = 0; i < numDates; i++)
+                    sum += pvs[i];
+            } else {
+                for (int i = 0; i < numDates; i++)
+                    sum += pvs[i] * Math.exp(-shift * (times[i] - tVal));
+            }
+            result[s] = sum / dfValDt;
+        }
+        return result;
+    }
+
+    //Payment days and net amounts of one ladder in date order
+    public LocalDate[] getPaymentDates(String currency, String curve){
+        Int2DoubleOpenHashMap ladder = ladders.get(LadderKey.of(currency, curve));
+        if (ladder == null)
+            return new LocalDate[0];
+        int[] days = ladder.keySet().toIntArray();
+        Arrays.sort(days);
+        LocalDate[] dates = new LocalDate[days.length];
+        for (int i = 0; i < days.length; i++)
+            dates[i] = LocalDate.ofEpochDay(days[i]);
+        return dates;
+    }
+
+    public double getAmount(String currency, String curve, LocalDate paymentDate){
+        Int2DoubleOpenHashMap ladder = ladders.get(LadderKey.of(currency, curve));
+        return ladder == null ? 0.0 : ladder.get((int) paymentDate.toEpochDay());
+    }
+
+    public LocalDate getValuationDate(){
+        return valuationDate;
+    }
+
+    private Int2DoubleOpenHashMap ladder(String currency, String curve){
+        return ladders.computeIfAbsent(LadderKey.of(currency, curve), k -> new Int2DoubleOpenHashMap());
+    }
+}
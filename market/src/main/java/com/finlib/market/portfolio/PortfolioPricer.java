@@ -0,0 +1,99 @@
+package com.finlib.market.portfolio;
+
+import com.finlib.finutils.FinlibException;
+import com.finlib.market.ParallelTasks;
+import com.finlib.market.credit.CDS;
+import com.finlib.market.credit.CreditCurve;
+import com.finlib.market.rates.IborSwap;
+import com.finlib.shared.DiscountCurve;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.function.ToDoubleFunction;
+
+/*Prices a list of trades in chunks on an executor. Each chunk writes its PVs into
+its own slice of the output array and adds its subtotal to a striped DoubleAdder,
+so workers never contend on a shared running total. The pricing function is
+called from several threads at once and must not mutate the trades or curves.
+
+The default executor is the common ForkJoin pool. On a JDK with virtual threads,
+Executors.newVirtualThreadPerTaskExecutor() can be passed in instead.*/
+public final class PortfolioPricer<T> {
+    private final ToDoubleFunction<? super T> pricer;
+    private final Executor executor;
+    private final int chunkSize;
+    private final int chunksPerThread;
+
+    public static class Builder<T> {
+        private final ToDoubleFunction<? super T> pricer;
+        private Executor executor = ForkJoinPool.commonPool();
+        private int chunkSize = 0;
+        private int chunksPerThread = 4;
+
+        public Builder(ToDoubleFunction<? super T> pricer){
+            this.pricer = pricer;
+        }
+        public Builder<T> withExecutor(Executor executor){
+            this.executor = executor;
+            return this;
+        }
+        //A fixed chunk size, otherwise the book is split into chunksPerThread chunks per available core
+        public Builder<T> withChunkSize(int chunkSize){
+            this.chunkSize = chunkSize;
+            return this;
+        }
+        public Builder<T> withChunksPerThread(int chunksPerThread){
+            this.chunksPerThread = chunksPerThread;
+            return this;
+        }
+        public PortfolioPricer<T> build(){
+            if (chunkSize < 0 || chunksPerThread < 1)
+                throw new FinlibException("Chunk size and chunks per thread must be positive");
+            return new PortfolioPricer<>(this);
+        }
+    }
+
+    private PortfolioPricer(Builder<T> builder){
+        this.pricer = builder.pricer;
+        this.executor = builder.executor;
+        this.chunkSize = builder.chunkSize;
+        this.chunksPerThread = builder.chunksPerThread;
+    }
+
+    public static Builder<IborSwap> swaps(LocalDate valuationDate, DiscountCurve indexCurve, Optional<DiscountCurve> discountCurve){
+        return new Builder<IborSwap>(swap -> swap.value(valuationDate, indexCurve, discountCurve, Optional.empty()));
+    }
+
+    //Full (dirty) PV of each contract
+    public static Builder<CDS> cds(LocalDate valuationDate, CreditCurve creditCurve, Optional<Double> recoveryRate){
+        return new Builder<CDS>(cds -> cds.value(valuationDate, creditCurve, true, recoveryRate, Optional.empty())[0]);
+    }
+
+    public PortfolioResult price(List<? extends T> trades){
+        int numTrades = trades.size();
+        int targetChunks = Runtime.getRuntime().availableProcessors() * chunksPerThread;
+        int size = chunkSize > 0 ? chunkSize : Math.max(1, (numTrades + targetChunks - 1) / targetChunks);
+        int numChunks = numTrades == 0 ? 0 : (numTrades + size - 1) / size;
+        double[] pvs = new double[numTrades];
+        long[] chunkNanos = new long[numChunks];
+        DoubleAdder total = new DoubleAdder();
+
+        long start = System.nanoTime();
+        ParallelTasks.runChunks(numTrades, size, executor, (chunk, from, to) -> {
+            long t0 = System.nanoTime();
+            double subtotal = 0.0;
+            for (int i = from; i < to; i++){
+                double pv = pricer.applyAsDouble(trades.get(i));
+                pvs[i] = pv;
+                subtotal += pv;
+            }
+            total.add(subtotal);
+            chunkNanos[chunk] = System.nanoTime() - t0;
+        });
+        return new PortfolioResult(pvs, total.sum(), chunkNanos, size, System.nanoTime() - start);
+    }
+}
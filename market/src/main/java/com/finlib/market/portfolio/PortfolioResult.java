@@ -0,0 +1,32 @@
+package com.finlib.market.portfolio;
+
+import java.util.Arrays;
+
+/*Output of PortfolioPricer.price: PVs in trade order, the book total and the
+wall time of every chunk.*/
+public final class PortfolioResult {
+    private final double[] pvs;
+    private final double totalPV;
+    private final long[] chunkNanos;
+    private final int chunkSize;
+    private final long elapsedNanos;
+
+    PortfolioResult(double[] pvs, double totalPV, long[] chunkNanos, int chunkSize, long elapsedNanos){
+        this.pvs = pvs;
+        this.totalPV = totalPV;
+        this.chunkNanos = chunkNanos;
+        this.chunkSize = chunkSize;
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    public double getPV(int trade){ return pvs[trade];}
+    public double[] getPVs(){ return pvs.clone();}
+    public double getTotalPV(){ return totalPV;}
+    public int getNumChunks(){ return chunkNanos.length;}
+    public int getChunkSize(){ return chunkSize;}
+    public long[] getChunkNanos(){ return chunkNanos.clone();}
+    public long getElapsedNanos(){ return elapsedNanos;}
+    //Sum of chunk times, i.e. the single-threaded cost of the book
+    public long getBusyNanos(){ return Arrays.stream(chunkNanos).sum();}
+    public long getSlowestChunkNanos(){ return Arrays.stream(chunkNanos).max().orElse(0L);}
+}
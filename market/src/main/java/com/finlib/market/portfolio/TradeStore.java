@@ -0,0 +1,281 @@
+package com.finlib.market.portfolio;
+
+import com.finlib.finutils.*;
+import com.finlib.market.credit.CDS;
+import com.finlib.market.rates.IborSwap;
+import com.finlib.market.rates.SwapPortfolio;
+import com.finlib.market.rates.SwapType;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+
+/*Binary store of IborSwap and CDS definitions with one fixed-width record per trade.
+Opening a store maps the file read-only, so loading a book costs a header check and
+the records stay off heap until they are read. A Record is a flyweight cursor over
+the mapping that reads fields in place. swap(i) and cds(i) materialize one trade,
+and toSwapPortfolio streams the swaps into the columnar engine one at a time.
+
+Layout, little endian: a 16 byte header (magic, version, record count) followed by
+48 byte records. Dates are epoch days and enums are stored by ordinal, so the
+version must be bumped if any of the enums used here is reordered.
+
+ swap: 0 kind, 1 fixed leg type, 2 fixed freq, 3 fixed day count, 4 float freq,
+       5 float day count, 6 calendar, 7 day adjust, 8 date gen rule,
+       12 effective date, 16 termination date, 24 fixed coupon, 32 notional, 40 float spread
+ cds:  0 kind, 1 long protection, 2 freq, 3 day count, 6 calendar, 7 day adjust,
+       8 date gen rule, 12 step in date, 16 maturity date, 24 coupon, 32 notional*/
+public final class TradeStore implements AutoCloseable {
+    public static final byte SWAP = 1;
+    public static final byte CDS_TRADE = 2;
+
+    private static final int MAGIC = 0x46545331;
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 16;
+    private static final int RECORD_SIZE = 48;
+
+    private static final FrequencyType[] FREQUENCIES = FrequencyType.values();
+    private static final DayCountType[] DAY_COUNTS = DayCountType.values();
+    private static final CalendarType[] CALENDARS = CalendarType.values();
+    private static final DayAdjustType[] DAY_ADJUSTS = DayAdjustType.values();
+    private static final DateGenRuleType[] DATE_GEN_RULES = DateGenRuleType.values();
+    private static final SwapType[] SWAP_TYPES = SwapType.values();
+
+    private final FileChannel channel;
+    private final MappedByteBuffer buffer;
+    private final int size;
+
+    private TradeStore(FileChannel channel, MappedByteBuffer buffer, int size){
+        this.channel = channel;
+        this.buffer = buffer;
+        this.size = size;
+    }
+
+    public static TradeStore open(Path path){
+        FileChannel channel = null;
+        try {
+            channel = FileChannel.open(path, StandardOpenOption.READ);
+            long length = channel.size();
+            if (length < HEADER_SIZE || length > Integer.MAX_VALUE)
+                throw new FinlibException("Not a trade store or larger than 2GB: " + path);
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, length);
+            buffer.order(ByteOrder.LITTLE_ENDIAN);
+            if (buffer.getInt(0) != MAGIC)
+                throw new FinlibException("Not a trade store: " + path);
+            if (buffer.getInt(4) != VERSION)
+                throw new FinlibException("Unsupported trade store version " + buffer.getInt(4));
+            long count = buffer.getLong(8);
+            if (HEADER_SIZE + count * RECORD_SIZE != length)
+                throw new FinlibException("Trade store is truncated: " + path);
+            return new TradeStore(channel, buffer, (int) count);
+        } catch (IOException e){
+            closeQuietly(channel);
+            throw new UncheckedIOException(e);
+        } catch (RuntimeException e){
+            closeQuietly(channel);
+            throw e;
+        }
+    }
+
+    public static Writer create(Path path){
+        try {
+            return new Writer(FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING));
+        } catch (IOException e){
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public int size(){
+        return size;
+    }
+
+    public byte kind(int index){
+        return buffer.get(offset(index));
+    }
+
+    //A cursor for one thread; reads go straight to the mapping with absolute gets
+    public Record record(){
+        return new Record();
+    }
+
+    public IborSwap swap(int index){
+        return record().moveTo(index).toSwap();
+    }
+
+    public CDS cds(int index){
+        return record().moveTo(index).toCDS();
+    }
+
+    //Materializes the swaps of the store one at a time, so only the columns are retained
+    public SwapPortfolio toSwapPortfolio(String index){
+        SwapPortfolio.Builder builder = new SwapPortfolio.Builder();
+        Record record = record();
+        for (int i = 0; i < size; i++){
+            if (record.moveTo(i).isSwap())
+                builder.add(index, record.toSwap());
+        }
+        return builder.build();
+    }
+
+    @Override
+    public void close(){
+        closeQuietly(channel);
+    }
+
+    private int offset(int index){
+        if (index < 0 || index >= size)
+            throw new FinlibException("Trade index " + index + " out of range for " + size + " trades");
+        return HEADER_SIZE + index * RECORD_SIZE;
+    }
+
+    private static void closeQuietly(FileChannel channel){
+        if (channel == null)
+            return;
+        try {
+            channel.close();
+        } catch (IOException ignored){
+        }
+    }
+
+    public final class Record {
+        private int base;
+
+        private Record(){}
+
+        public Record moveTo(int index){
+            base = offset(index);
+            return this;
+        }
+
+        public boolean isSwap(){ return buffer.get(base) == SWAP;}
+        public boolean isCDS(){ return buffer.get(base) == CDS_TRADE;}
+        //Effective date of a swap, step in date of a CDS
+        public LocalDate getStartDate(){ return LocalDate.ofEpochDay(buffer.getInt(base + 12));}
+        //Termination date of a swap, maturity date of a CDS
+        public LocalDate getEndDate(){ return LocalDate.ofEpochDay(buffer.getInt(base + 16));}
+        public int getStartEpochDay(){ return buffer.getInt(base + 12);}
+        public int getEndEpochDay(){ return buffer.getInt(base + 16);}
+        //Fixed coupon of a swap, running spread of a CDS
+        public double getCoupon(){ return buffer.getDouble(base + 24);}
+        public double getNotional(){ return buffer.getDouble(base + 32);}
+        public double getFloatSpread(){ return buffer.getDouble(base + 40);}
+        public SwapType getFixedLegType(){ return SWAP_TYPES[buffer.get(base + 1)];}
+        public boolean isLongProtection(){ return buffer.get(base + 1) != 0;}
+
+        public IborSwap toSwap(){
+            if (!isSwap())
+                throw new FinlibException("Trade is not a swap");
+            return IborSwap.of(getStartDate(), getEndDate(), getFixedLegType(), getCoupon(),
+                    FREQUENCIES[buffer.get(base + 2)], DAY_COUNTS[buffer.get(base + 3)], getNotional(), getFloatSpread(),
+                    FREQUENCIES[buffer.get(base + 4)], DAY_COUNTS[buffer.get(base + 5)], CALENDARS[buffer.get(base + 6)],
+                    DAY_ADJUSTS[buffer.get(base + 7)], DATE_GEN_RULES[buffer.get(base + 8)]);
+        }
+
+        public CDS toCDS(){
+            if (!isCDS())
+                throw new FinlibException("Trade is not a CDS");
+            return CDS.of(getStartDate(), getEndDate(), getCoupon(), getNotional(), isLongProtection(),
+                    FREQUENCIES[buffer.get(base + 2)], DAY_COUNTS[buffer.get(base + 3)], CALENDARS[buffer.get(base + 6)],
+                    DAY_ADJUSTS[buffer.get(base + 7)], DATE_GEN_RULES[buffer.get(base + 8)]);
+        }
+    }
+
+    public static final class Writer implements AutoCloseable {
+        private static final int BATCH = 1024;
+        private final FileChannel channel;
+        private final ByteBuffer batch = ByteBuffer.allocateDirect(BATCH * RECORD_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        private long count = 0;
+
+        private Writer(FileChannel channel) throws IOException {
+            this.channel = channel;
+            channel.write(header(0), 0);
+            channel.position(HEADER_SIZE);
+        }
+
+        public Writer add(IborSwap swap){
+            int base = next();
+            batch.put(base, SWAP);
+            batch.put(base + 1, (byte) swap.getFixedLegType().ordinal());
+            batch.put(base + 2, (byte) swap.getFixedFreqType().ordinal());
+            batch.put(base + 3, (byte) swap.getFixedDayCountType().ordinal());
+            batch.put(base + 4, (byte) swap.getFloatFreqType().ordinal());
+            batch.put(base + 5, (byte) swap.getFloatDayCountType().ordinal());
+            batch.put(base + 6, (byte) swap.getCalendarType().ordinal());
+            batch.put(base + 7, (byte) swap.getDayAdjustType().ordinal());
+            batch.put(base + 8, (byte) swap.getDateGenRuleType().ordinal());
+            batch.putInt(base + 12, (int) swap.getEffectiveDate().toEpochDay());
+            batch.putInt(base + 16, (int) swap.getTerminationDate().toEpochDay());
+            batch.putDouble(base + 24, swap.getFixedCoupon());
+            batch.putDouble(base + 32, swap.getNotional());
+            batch.putDouble(base + 40, swap.getFloatSpread());
+            return this;
+        }
+
+        public Writer add(CDS cds){
+            int base = next();
+            batch.put(base, CDS_TRADE);
+            batch.put(base + 1, (byte) (cds.isLongProtection() ? 1 : 0));
+            batch.put(base + 2, (byte) cds.getFreqType().ordinal());
+            batch.put(base + 3, (byte) cds.getDayCountType().ordinal());
+            batch.put(base + 6, (byte) cds.getCalendarType().ordinal());
+            batch.put(base + 7, (byte) cds.getDayAdjustType().ordinal());
+            batch.put(base + 8, (byte) cds.getDateGenRuleType().ordinal());
+            batch.putInt(base + 12, (int) cds.getStepInDate().toEpochDay());
+            batch.putInt(base + 16, (int) cds.getMaturityDate().toEpochDay());
+            batch.putDouble(base + 24, cds.getCoupon());
+            batch.putDouble(base + 32, cds.getNotional());
+            return this;
+        }
+
+        private int next(){
+            if ((HEADER_SIZE + (count + 1) * RECORD_SIZE) > Integer.MAX_VALUE)
+                throw new FinlibException("Trade store cannot exceed 2GB");
+            if (batch.position() == batch.capacity())
+                flush();
+            int base = batch.position();
+            for (int i = 0; i < RECORD_SIZE; i += 8)
+                batch.putLong(base + i, 0L);
+            batch.position(base + RECORD_SIZE);
+            count++;
+            return base;
+        }
+
+        private void flush(){
+            batch.flip();
+            try {
+                while (batch.hasRemaining())
+                    channel.write(batch);
+            } catch (IOException e){
+                throw new UncheckedIOException(e);
+            }
+            batch.clear();
+        }
+
+        private static ByteBuffer header(long count){
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            header.putInt(MAGIC).putInt(VERSION).putLong(count).flip();
+            return header;
+        }
+
+        //The record count is written last, so an interrupted write fails the size check on open
+        @Override
+        public void close(){
+            try {
+                flush();
+                channel.write(header(count), 0);
+                channel.force(true);
+            } catch (IOException e){
+                throw new UncheckedIOException(e);
+            } finally {
+                closeQuietly(channel);
+            }
+        }
+    }
+}
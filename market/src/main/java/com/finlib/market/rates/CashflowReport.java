@@ -0,0 +1,41 @@
+package com.finlib.market.rates;
+
+import it.unimi.dsi.fastutil.doubles.DoubleArrayList;
+
+import java.time.LocalDate;
+import java.util.Collections;
+import java.util.List;
+
+/*Detailed cash flow ladder of a leg on one valuation date. Built on demand by
+FixedLeg.cashflowReport and FloatLeg.cashflowReport so that valuation itself
+does not keep any per-call state on the leg. Entries for payments on or before
+the valuation date are zero.*/
+public final class CashflowReport {
+    private final List<LocalDate> paymentDates;
+    private final DoubleArrayList rates;
+    private final DoubleArrayList payments;
+    private final DoubleArrayList paymentDFs;
+    private final DoubleArrayList paymentPVs;
+    private final DoubleArrayList cumulativePVs;
+    private final double legPV;
+
+    CashflowReport(List<LocalDate> paymentDates, DoubleArrayList rates, DoubleArrayList payments,
+                   DoubleArrayList paymentDFs, DoubleArrayList paymentPVs, DoubleArrayList cumulativePVs, double legPV){
+        this.paymentDates = Collections.unmodifiableList(paymentDates);
+        this.rates = rates;
+        this.payments = payments;
+        this.paymentDFs = paymentDFs;
+        this.paymentPVs = paymentPVs;
+        this.cumulativePVs = cumulativePVs;
+        this.legPV = legPV;
+    }
+
+    public List<LocalDate> getPaymentDates(){ return paymentDates;}
+    public DoubleArrayList getRates(){ return rates;}
+    public DoubleArrayList getPayments(){ return payments;}
+    public DoubleArrayList getPaymentDFs(){ return paymentDFs;}
+    public DoubleArrayList getPaymentPVs(){ return paymentPVs;}
+    public DoubleArrayList getCumulativePVs(){ return cumulativePVs;}
+    //Signed leg PV, negative for a paying leg
+    public double getLegPV(){ return legPV;}
+}
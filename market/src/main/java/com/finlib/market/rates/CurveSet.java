@@ -0,0 +1,44 @@
+package com.finlib.market.rates;
+
+import com.finlib.finutils.FinlibException;
+
+import java.time.LocalDate;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/*A consistent set of curves for one currency: the curve used to discount cash
+flows and one projection curve per Ibor index, all built on the same date.*/
+public final class CurveSet {
+    private final LocalDate valuationDate;
+    private final IborCurve discountCurve;
+    private final Map<String, IborCurve> projectionCurves;
+
+    private CurveSet(LocalDate valuationDate, IborCurve discountCurve, Map<String, IborCurve> projectionCurves){
+        this.valuationDate = valuationDate;
+        this.discountCurve = discountCurve;
+        this.projectionCurves = Collections.unmodifiableMap(new LinkedHashMap<>(projectionCurves));
+    }
+
+    public static CurveSet of(LocalDate valuationDate, IborCurve discountCurve, Map<String, IborCurve> projectionCurves){
+        return new CurveSet(valuationDate, discountCurve, projectionCurves);
+    }
+
+    //Single curve setup where the Ibor curve both projects and discounts
+    public static CurveSet of(String index, IborCurve curve){
+        return new CurveSet(curve.getValuationDate(), curve, Map.of(index, curve));
+    }
+
+    public LocalDate getValuationDate(){ return valuationDate;}
+    public IborCurve getDiscountCurve(){ return discountCurve;}
+    public Set<String> getIndices(){ return projectionCurves.keySet();}
+    public Map<String, IborCurve> getProjectionCurves(){ return projectionCurves;}
+
+    public IborCurve getProjectionCurve(String index){
+        IborCurve curve = projectionCurves.get(index);
+        if (curve == null)
+            throw new FinlibException("No projection curve for index " + index);
+        return curve;
+    }
+}
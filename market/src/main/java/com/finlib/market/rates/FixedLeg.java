@@ -32,11 +32,9 @@ public final class FixedLeg {
     private final DoubleArrayList payments = new DoubleArrayList();
     private final DoubleArrayList yearFracs = new DoubleArrayList();
     private final IntArrayList accruedDays = new IntArrayList();
-    private final DoubleArrayList paymentDFs = new DoubleArrayList();
-    private final DoubleArrayList paymentPVs = new DoubleArrayList();
-    private final DoubleArrayList cumulativePVs = new DoubleArrayList();
     private final Calendar calendar;
     private final DayCount dayCount;
+    private volatile LegTimeGrid timeGrid;
 
     public static class Builder {
         private final LocalDate effectiveDate;
@@ -154,9 +152,30 @@ public final class FixedLeg {
     }
 
     public double value(LocalDate valuationDate, DiscountCurve discountCurve){
-        paymentDFs.clear();
-        paymentPVs.clear();
-        cumulativePVs.clear();
+        LegTimeGrid grid = timeGrid(discountCurve);
+        double dfValDt = discountCurve.df(valuationDate);
+        int numPayments = paymentDates.size();
+        double legPV = 0.0, dfPmnt = 0.0;
+        for (int i = 0; i < numPayments;i++){
+            if (paymentDates.get(i).isAfter(valuationDate)){
+                dfPmnt = discountCurve.df(grid.paymentTimes[i]) / dfValDt;
+                legPV += payments.getDouble(i) * dfPmnt;
+            }
+        }
+        //dfPmnt is left at the last payment's discount factor
+        if (paymentDates.get(numPayments - 1).isAfter(valuationDate))
+            legPV += principal * dfPmnt * notional;
+
+        if (legType == SwapType.PAY)
+            legPV = legPV * -1.0;
+
+        return legPV;
+    }
+
+    public CashflowReport cashflowReport(LocalDate valuationDate, DiscountCurve discountCurve){
+        DoubleArrayList paymentDFs = new DoubleArrayList(paymentDates.size());
+        DoubleArrayList paymentPVs = new DoubleArrayList(paymentDates.size());
+        DoubleArrayList cumulativePVs = new DoubleArrayList(paymentDates.size());
         double dfValDt = discountCurve.df(valuationDate);
         int numPayments = paymentDates.size();
         double legPV = 0.0;
@@ -186,11 +205,22 @@ public final class FixedLeg {
         if (legType == SwapType.PAY)
             legPV = legPV * -1.0;
 
-        return legPV;
+        return new CashflowReport(paymentDates, rates.clone(), payments.clone(), paymentDFs, paymentPVs, cumulativePVs, legPV);
+    }
+
+    private LegTimeGrid timeGrid(DiscountCurve curve){
+        LegTimeGrid grid = LegTimeGrid.of(timeGrid, curve, startAccrueDates, endAccrueDates, paymentDates);
+        if (grid != timeGrid)
+            timeGrid = grid;
+        return grid;
     }
 
     public double getCoupon() { return coupon;}
     public double getNotional() { return notional;}
     public List<LocalDate> getPaymentDates() { return paymentDates;}
     public LocalDate getLastPaymentDate() { return paymentDates.get(paymentDates.size() - 1);}
+    public double getPrincipal() { return principal;}
+    public SwapType getLegType() { return legType;}
+    public DoubleArrayList getPayments() { return payments;}
+    public DoubleArrayList getYearFracs() { return yearFracs;}
 }
@@ -30,16 +30,13 @@ public final class FloatLeg {
     private final List<LocalDate> startAccrueDates = new ArrayList<>();
     private final List<LocalDate> endAccrueDates = new ArrayList<>();
     private final List<LocalDate> paymentDates = new ArrayList<>();
-    private final DoubleArrayList rates = new DoubleArrayList();
-
     private final DoubleArrayList yearFracs = new DoubleArrayList();
     private final IntArrayList accruedDays = new IntArrayList();
-    private final DoubleArrayList paymentDFs = new DoubleArrayList();
-    private final DoubleArrayList payments = new DoubleArrayList();
-    private final DoubleArrayList paymentPVs = new DoubleArrayList();
-    private final DoubleArrayList cumulativePVs = new DoubleArrayList();
     private final Calendar calendar;
     private final DayCount dayCount;
+    private final boolean exact;
+    private volatile LegTimeGrid indexGrid;
+    private volatile LegTimeGrid discountGrid;
 
     public static class Builder {
         private final LocalDate effectiveDate;
@@ -54,6 +51,7 @@ public final class FloatLeg {
         private CalendarType calendarType = CalendarType.WEEKEND;
         private DayAdjustType dayAdjustType = DayAdjustType.FOLLOWING;
         private DateGenRuleType dateGenRuleType = DateGenRuleType.BACKWARD;
+        private boolean exact = false;
 
         public Builder(LocalDate effectiveDate,
                        LocalDate endDate,
@@ -107,6 +105,11 @@ public final class FloatLeg {
             this.dateGenRuleType = dateGenRuleType;
             return this;
         }
+        //Values the leg with BigDecimal arithmetic instead of the default double path
+        public Builder withExactArithmetic(boolean exact){
+            this.exact = exact;
+            return this;
+        }
 
         public FloatLeg build(){
             return new FloatLeg(this);
@@ -128,6 +131,7 @@ public final class FloatLeg {
         this.dateGenRuleType = builder.dateGenRuleType;
         this.calendar = new Calendar(this.calendarType);
         this.dayCount = new DayCount(this.dayCountType);
+        this.exact = builder.exact;
         this.maturityDate = this.calendar.adjust(endDate, this.dayAdjustType);
         generatePaymentDates();
     }
@@ -155,43 +159,122 @@ public final class FloatLeg {
         }
     }
 
+    /*Double precision valuation. The coupon PVs are added with Neumaier compensated
+    summation so the leg PV stays within rounding of the BigDecimal path. Nothing is
+    written to the leg, so one instance can be valued from several threads at once.*/
     public double value(LocalDate valuationDate, DiscountCurve indexCurve, DiscountCurve discountCurve, Optional<Double> firstFixing){
-        rates.clear();
-        payments.clear();
-        paymentDFs.clear();
-        paymentPVs.clear();
-        cumulativePVs.clear();
+        if (exact)
+            return valueExact(valuationDate, indexCurve, discountCurve, firstFixing);
+        LegTimeGrid indexGrid = indexTimeGrid(indexCurve);
+        LegTimeGrid discountGrid = discountTimeGrid(discountCurve);
+        double dfValDt = discountCurve.df(valuationDate);
+        int numPayments = paymentDates.size();
+        double sum = 0.0, compensation = 0.0, fwdRate = 0.0, dfPmnt = 0.0;
+        boolean firstPayment = false;
+        for (int i = 0; i < numPayments;i++){
+            LocalDate paymentDt = paymentDates.get(i);
+            if (paymentDt.isAfter(valuationDate)) {
+                double alpha = yearFracs.getDouble(i);
+
+                if (firstPayment == false && firstFixing.isPresent()) {
+                    fwdRate = firstFixing.get();
+                    firstPayment = true;
+                } else {
+                    double dfStart = indexCurve.df(indexGrid.startTimes[i]);
+                    double dfEnd = indexCurve.df(indexGrid.endTimes[i]);
+                    fwdRate = (dfStart / dfEnd - 1.0) / alpha;
+                }
+                double pmntAmount = (fwdRate + spread) * alpha * notional;
+                dfPmnt = discountCurve.df(discountGrid.paymentTimes[i]) / dfValDt;
+                double pmntPV = pmntAmount * dfPmnt;
+
+                double t = sum + pmntPV;
+                if (Math.abs(sum) >= Math.abs(pmntPV))
+                    compensation += (sum - t) + pmntPV;
+                else
+                    compensation += (pmntPV - t) + sum;
+                sum = t;
+            }
+        }
+        double legPV = sum + compensation;
+        //dfPmnt is left at the last payment's discount factor
+        if (paymentDates.get(numPayments - 1).isAfter(valuationDate))
+            legPV += principal * dfPmnt * notional;
+
+        if (legType == SwapType.PAY)
+            legPV = legPV * -1.0;
+
+        return legPV;
+    }
+
+    private double valueExact(LocalDate valuationDate, DiscountCurve indexCurve, DiscountCurve discountCurve, Optional<Double> firstFixing){
         MathContext mc = MathContext.DECIMAL128;
+        LegTimeGrid indexGrid = indexTimeGrid(indexCurve);
+        LegTimeGrid discountGrid = discountTimeGrid(discountCurve);
         double dfValDt = discountCurve.df(valuationDate);
         int numPayments = paymentDates.size();
-        double legPV = 0.0, fwdRate = 0.0;
+        double legPV = 0.0, fwdRate = 0.0, dfPmnt = 0.0;
         boolean firstPayment = false;
         for (int i = 0; i < numPayments;i++){
             LocalDate paymentDt = paymentDates.get(i);
             if (paymentDt.isAfter(valuationDate)) {
-                LocalDate startAccrueDt = startAccrueDates.get(i);
-                LocalDate endAccrueDt = endAccrueDates.get(i);
                 double alpha = yearFracs.getDouble(i);
 
                 if (firstPayment == false && firstFixing.isPresent()) {
                     fwdRate = firstFixing.get();
                     firstPayment = true;
                 } else {
-                    double dfStart = indexCurve.df(startAccrueDt);
-                    double dfEnd = indexCurve.df(endAccrueDt);
-                    //fwdRate = (dfStart / dfEnd - 1.0) / alpha;
-                    try {
-                        fwdRate = BigDecimal.valueOf(dfStart).divide(BigDecimal.valueOf(dfEnd), mc).subtract(BigDecimal.valueOf(1.0)).
-                                divide(BigDecimal.valueOf(alpha), mc).doubleValue();
-                    } catch (NumberFormatException nfe){
-                        System.out.println("here");
-                    }
+                    double dfStart = indexCurve.df(indexGrid.startTimes[i]);
+                    double dfEnd = indexCurve.df(indexGrid.endTimes[i]);
+                    fwdRate = BigDecimal.valueOf(dfStart).divide(BigDecimal.valueOf(dfEnd), mc).subtract(BigDecimal.valueOf(1.0)).
+                            divide(BigDecimal.valueOf(alpha), mc).doubleValue();
                 }
                 double pmntAmount = BigDecimal.valueOf(fwdRate).add(BigDecimal.valueOf(spread)).multiply(BigDecimal.valueOf(alpha)).
                         multiply(BigDecimal.valueOf(notional)).doubleValue();
-                double dfPmnt = BigDecimal.valueOf(discountCurve.df(paymentDt)).divide(BigDecimal.valueOf(dfValDt),mc).doubleValue();
+                dfPmnt = BigDecimal.valueOf(discountCurve.df(discountGrid.paymentTimes[i])).divide(BigDecimal.valueOf(dfValDt),mc).doubleValue();
                 double pmntPV = BigDecimal.valueOf(pmntAmount).multiply(BigDecimal.valueOf(dfPmnt)).doubleValue();
                 legPV = BigDecimal.valueOf(legPV).add(BigDecimal.valueOf(pmntPV)).doubleValue();
+            }
+        }
+        if (paymentDates.get(numPayments - 1).isAfter(valuationDate))
+            legPV += principal * dfPmnt * notional;
+
+        if (legType == SwapType.PAY)
+            legPV = legPV * -1.0;
+
+        return legPV;
+    }
+
+    /*Builds the per-period ladder that value() used to leave behind on the leg.
+    Allocates fresh lists on every call, so it is meant for reporting rather than
+    for scenario loops.*/
+    public CashflowReport cashflowReport(LocalDate valuationDate, DiscountCurve indexCurve, DiscountCurve discountCurve, Optional<Double> firstFixing){
+        int numPayments = paymentDates.size();
+        DoubleArrayList rates = new DoubleArrayList(numPayments);
+        DoubleArrayList payments = new DoubleArrayList(numPayments);
+        DoubleArrayList paymentDFs = new DoubleArrayList(numPayments);
+        DoubleArrayList paymentPVs = new DoubleArrayList(numPayments);
+        DoubleArrayList cumulativePVs = new DoubleArrayList(numPayments);
+        double dfValDt = discountCurve.df(valuationDate);
+        double legPV = 0.0, fwdRate = 0.0;
+        boolean firstPayment = false;
+        for (int i = 0; i < numPayments;i++){
+            LocalDate paymentDt = paymentDates.get(i);
+            if (paymentDt.isAfter(valuationDate)) {
+                double alpha = yearFracs.getDouble(i);
+
+                if (firstPayment == false && firstFixing.isPresent()) {
+                    fwdRate = firstFixing.get();
+                    firstPayment = true;
+                } else {
+                    double dfStart = indexCurve.df(startAccrueDates.get(i));
+                    double dfEnd = indexCurve.df(endAccrueDates.get(i));
+                    fwdRate = (dfStart / dfEnd - 1.0) / alpha;
+                }
+                double pmntAmount = (fwdRate + spread) * alpha * notional;
+                double dfPmnt = discountCurve.df(paymentDt) / dfValDt;
+                double pmntPV = pmntAmount * dfPmnt;
+                legPV += pmntPV;
 
                 rates.add(fwdRate);
                 payments.add(pmntAmount);
@@ -205,24 +288,44 @@ public final class FloatLeg {
                 paymentPVs.add(0.0);
                 cumulativePVs.add(legPV);
             }
-
-            /*if (paymentDates.get(paymentDates.size() - 1).isAfter(valuationDate)){
-                double paymentPV = principal * paymentDFs.getDouble(paymentDFs.size()-1) * notional;
-                paymentPVs.set(paymentPVs.size()-1, paymentPVs.getDouble(paymentPVs.size()-1) + paymentPV);
-                legPV += paymentPV;
-                cumulativePVs.set(cumulativePVs.size()-1, legPV);
-            }*/
         }
-        if (paymentDates.get(paymentDates.size() - 1).isAfter(valuationDate)){
-            double paymentPV = principal * paymentDFs.getDouble(paymentDFs.size()-1) * notional;
-            paymentPVs.set(paymentPVs.size()-1, paymentPVs.getDouble(paymentPVs.size()-1) + paymentPV);
+        if (paymentDates.get(numPayments - 1).isAfter(valuationDate)){
+            double paymentPV = principal * paymentDFs.getDouble(numPayments - 1) * notional;
+            paymentPVs.set(numPayments - 1, paymentPVs.getDouble(numPayments - 1) + paymentPV);
             legPV += paymentPV;
-            cumulativePVs.set(cumulativePVs.size()-1, legPV);
+            cumulativePVs.set(numPayments - 1, legPV);
         }
 
         if (legType == SwapType.PAY)
             legPV = legPV * -1.0;
 
-        return legPV;
+        return new CashflowReport(paymentDates, rates, payments, paymentDFs, paymentPVs, cumulativePVs, legPV);
+    }
+
+    private LegTimeGrid indexTimeGrid(DiscountCurve curve){
+        LegTimeGrid grid = LegTimeGrid.of(indexGrid, curve, startAccrueDates, endAccrueDates, paymentDates);
+        if (grid != indexGrid)
+            indexGrid = grid;
+        return grid;
     }
+
+    //Single curve valuations share the index grid
+    private LegTimeGrid discountTimeGrid(DiscountCurve curve){
+        LegTimeGrid index = indexGrid;
+        if (index != null && index.matches(curve))
+            return index;
+        LegTimeGrid grid = LegTimeGrid.of(discountGrid, curve, startAccrueDates, endAccrueDates, paymentDates);
+        if (grid != discountGrid)
+            discountGrid = grid;
+        return grid;
+    }
+
+    public double getSpread() { return spread;}
+    public double getNotional() { return notional;}
+    public double getPrincipal() { return principal;}
+    public SwapType getLegType() { return legType;}
+    public List<LocalDate> getStartAccrueDates() { return startAccrueDates;}
+    public List<LocalDate> getEndAccrueDates() { return endAccrueDates;}
+    public List<LocalDate> getPaymentDates() { return paymentDates;}
+    public DoubleArrayList getYearFracs() { return yearFracs;}
 }
@@ -0,0 +1,103 @@
+package com.finlib.market.rates;
+
+import com.finlib.finutils.FinlibException;
+import com.finlib.shared.DiscountCurve;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+
+/*Values swaps on a fixed set of future valuation dates against unchanged curves,
+for carry, roll-down and theta reports. On date v a flow paid after v is worth its
+amount times df(pay) / df(v), and projected amounts do not depend on v, so every
+flow is discounted once to the curve date. A single backward sweep over the
+flows, merged in payment order, then gives the suffix sum for every date. The
+cost per trade is O(flows + dates) instead of a full leg valuation per date.
+
+Swaps are valued as IborSwap.value does without a first fixing.*/
+public final class HorizonEngine {
+    private final LocalDate[] valuationDates;
+    private final long[] valuationDays;
+
+    private HorizonEngine(List<LocalDate> valuationDates){
+        this.valuationDates = valuationDates.toArray(new LocalDate[0]);
+        this.valuationDays = new long[this.valuationDates.length];
+        for (int k = 0; k < valuationDays.length; k++){
+            valuationDays[k] = this.valuationDates[k].toEpochDay();
+            if (k > 0 && valuationDays[k] <= valuationDays[k - 1])
+                throw new FinlibException("Horizon dates must be strictly increasing");
+        }
+    }
+
+    public static HorizonEngine of(List<LocalDate> valuationDates){
+        return new HorizonEngine(valuationDates);
+    }
+
+    //PV of the swap on each horizon date, in the order the dates were given
+    public double[] value(IborSwap swap, DiscountCurve indexCurve, Optional<DiscountCurve> discountCurve){
+        DiscountCurve discCurve = discountCurve.orElse(indexCurve);
+        FixedLeg fixedLeg = swap.getFixedLeg();
+        FloatLeg floatLeg = swap.getFloatLeg();
+        int numFixed = fixedLeg.getPaymentDates().size();
+        int numFloat = floatLeg.getPaymentDates().size();
+        double[] fixedPVs = new double[numFixed];
+        double[] floatPVs = new double[numFloat];
+
+        double sign = fixedLeg.getLegType() == SwapType.PAY ? -1.0 : 1.0;
+        LegTimeGrid fixedGrid = LegTimeGrid.of(null, discCurve, fixedLeg.getPaymentDates(), fixedLeg.getPaymentDates(),
+                fixedLeg.getPaymentDates());
+        for (int i = 0; i < numFixed; i++){
+            double amount = fixedLeg.getPayments().getDouble(i);
+            if (i == numFixed - 1)
+                amount += fixedLeg.getPrincipal() * fixedLeg.getNotional();
+            fixedPVs[i] = sign * amount * discCurve.df(fixedGrid.paymentTimes[i]);
+        }
+
+        sign = floatLeg.getLegType() == SwapType.PAY ? -1.0 : 1.0;
+        LegTimeGrid indexGrid = LegTimeGrid.of(null, indexCurve, floatLeg.getStartAccrueDates(), floatLeg.getEndAccrueDates(),
+                floatLeg.getPaymentDates());
+        LegTimeGrid discountGrid = LegTimeGrid.of(indexGrid, discCurve, floatLeg.getStartAccrueDates(), floatLeg.getEndAccrueDates(),
+                floatLeg.getPaymentDates());
+        for (int i = 0; i < numFloat; i++){
+            double alpha = floatLeg.getYearFracs().getDouble(i);
+            double fwdRate = (indexCurve.df(indexGrid.startTimes[i]) / indexCurve.df(indexGrid.endTimes[i]) - 1.0) / alpha;
+            double amount = (fwdRate + floatLeg.getSpread()) * alpha * floatLeg.getNotional();
+            if (i == numFloat - 1)
+                amount += floatLeg.getPrincipal() * floatLeg.getNotional();
+            floatPVs[i] = sign * amount * discCurve.df(discountGrid.paymentTimes[i]);
+        }
+
+        //both legs pay in date order, so walking them backwards together visits flows latest first
+        List<LocalDate> fixedDates = fixedLeg.getPaymentDates();
+        List<LocalDate> floatDates = floatLeg.getPaymentDates();
+        int i = numFixed - 1, j = numFloat - 1;
+        double suffix = 0.0;
+        double[] pvs = new double[valuationDates.length];
+        for (int k = valuationDates.length - 1; k >= 0; k--){
+            long day = valuationDays[k];
+            while (true){
+                long fixedDay = i >= 0 ? fixedDates.get(i).toEpochDay() : Long.MIN_VALUE;
+                long floatDay = j >= 0 ? floatDates.get(j).toEpochDay() : Long.MIN_VALUE;
+                if (fixedDay <= day && floatDay <= day)
+                    break;
+                if (fixedDay >= floatDay)
+                    suffix += fixedPVs[i--];
+                else
+                    suffix += floatPVs[j--];
+            }
+            pvs[k] = suffix / discCurve.df(valuationDates[k]);
+        }
+        return pvs;
+    }
+
+    public double[][] value(List<IborSwap> swaps, DiscountCurve indexCurve, Optional<DiscountCurve> discountCurve){
+        double[][] pvs = new double[swaps.size()][];
+        for (int n = 0; n < swaps.size(); n++)
+            pvs[n] = value(swaps.get(n), indexCurve, discountCurve);
+        return pvs;
+    }
+
+    public List<LocalDate> getValuationDates(){
+        return List.of(valuationDates);
+    }
+}
@@ -1,12 +1,15 @@
 package com.finlib.market.rates;
 
 import com.finlib.finutils.FinlibException;
+import com.finlib.market.CurveKey;
 import com.finlib.shared.DiscountCurve;
 import com.finlib.shared.InterpolationType;
 import com.finlib.shared.Interpolator;
 import it.unimi.dsi.fastutil.doubles.DoubleArrayList;
 import org.apache.commons.math4.analysis.UnivariateFunction;
 import org.apache.commons.math4.analysis.solvers.*;
+import org.apache.commons.math4.exception.NoBracketingException;
+import org.apache.commons.math4.exception.TooManyEvaluationsException;
 
 import java.io.Serializable;
 import java.time.LocalDate;
@@ -19,25 +22,129 @@ public final class IborCurve extends DiscountCurve implements Serializable {
 
     private final List<IborDeposit> depos;
     private final List<IborFRA> fras;
+    private final List<IborFuture> futures;
+    private final double[] futurePrices;
+    private final double meanReversion, volatility;
+    private final List<IborFRA> futureFRAs;
     private final List<IborSwap> swaps;
     private final InterpolationType interpolationType;
     private final boolean checkRefit;
     private Optional<DiscountCurve> discountCurve;
-
+    private int solverEvaluations, warmStartFallbacks, coldEvaluations;
+
+    public static class Builder {
+        private final LocalDate valuationDate;
+        private final InterpolationType interpolationType;
+        private Optional<DiscountCurve> discountCurve = Optional.empty();
+        private List<IborDeposit> depos = new ArrayList<>();
+        private List<IborFRA> fras = new ArrayList<>();
+        private List<IborFuture> futures = new ArrayList<>();
+        private double[] futurePrices = new double[0];
+        private double meanReversion = 0.0;
+        private double volatility = 0.0;
+        private List<IborSwap> swaps = new ArrayList<>();
+        private boolean checkRefit = true;
+        private Optional<IborCurve> priorCurve = Optional.empty();
+        private double warmStartWidth = 0.01;
+
+        public Builder(LocalDate valuationDate, InterpolationType interpolationType){
+            this.valuationDate = valuationDate;
+            this.interpolationType = interpolationType;
+        }
+        public Builder withDiscountCurve(Optional<DiscountCurve> discountCurve){
+            this.discountCurve = discountCurve;
+            return this;
+        }
+        public Builder withDeposits(List<IborDeposit> depos){
+            this.depos = depos;
+            return this;
+        }
+        public Builder withFRAs(List<IborFRA> fras){
+            this.fras = fras;
+            return this;
+        }
+        //Futures must form a strip in delivery order, prices are quoted as 100 - rate in percent
+        public Builder withFutures(List<IborFuture> futures, double[] futurePrices){
+            if (futures.size() != futurePrices.length)
+                throw new FinlibException("Number of futures and futures prices do not match");
+            this.futures = futures;
+            this.futurePrices = futurePrices;
+            return this;
+        }
+        //Hull-White parameters used for the convexity adjustment of the futures strip
+        public Builder withConvexity(double meanReversion, double volatility){
+            this.meanReversion = meanReversion;
+            this.volatility = volatility;
+            return this;
+        }
+        public Builder withSwaps(List<IborSwap> swaps){
+            this.swaps = swaps;
+            return this;
+        }
+        public Builder withCheckRefit(boolean checkRefit){
+            this.checkRefit = checkRefit;
+            return this;
+        }
+        /*Seeds every solver with the prior curve's DF at the pillar and brackets it
+        within +/- warmStartWidth (relative). Pillars that do not converge in the
+        tight bracket are re-solved on the usual [0.001, 1.2] bracket.*/
+        public Builder withPriorCurve(IborCurve priorCurve){
+            this.priorCurve = Optional.of(priorCurve);
+            return this;
+        }
+        public Builder withPriorCurve(IborCurve priorCurve, double warmStartWidth){
+            this.priorCurve = Optional.of(priorCurve);
+            this.warmStartWidth = warmStartWidth;
+            return this;
+        }
+        public IborCurve build(){
+            return new IborCurve(this);
+        }
+        /*Cache key over every input that defines the curve. The prior curve and
+        warm start width are left out: they only move the solved DFs within the
+        solver tolerance.*/
+        public CurveKey key(){
+            return CurveKey.ibor(valuationDate, interpolationType, discountCurve, depos, fras, futures, futurePrices,
+                    meanReversion, volatility, swaps, checkRefit);
+        }
+    }
 
     public IborCurve(LocalDate valuationDate, Optional<DiscountCurve> discountCurve, List<IborDeposit> depos, List<IborFRA> fras, List<IborSwap> swaps,
                      InterpolationType interpolationType, boolean checkRefit){
-        this.valuationDate = valuationDate;
-        this.discountCurve = discountCurve;
-        this.depos = depos;
-        this.fras = fras;
-        this.swaps = swaps;
-        this.interpolationType = interpolationType;
-        this.checkRefit = checkRefit;
+        this(new Builder(valuationDate, interpolationType).withDiscountCurve(discountCurve)
+                .withDeposits(depos).withFRAs(fras).withSwaps(swaps).withCheckRefit(checkRefit));
+    }
+
+    private IborCurve(Builder builder){
+        this.valuationDate = builder.valuationDate;
+        this.discountCurve = builder.discountCurve;
+        this.depos = builder.depos;
+        this.fras = builder.fras;
+        this.futures = builder.futures;
+        this.futurePrices = builder.futurePrices;
+        this.meanReversion = builder.meanReversion;
+        this.volatility = builder.volatility;
+        this.swaps = builder.swaps;
+        this.interpolationType = builder.interpolationType;
+        this.checkRefit = builder.checkRefit;
         this.interpolator = Interpolator.of(interpolationType);
+        this.futureFRAs = futuresToFRAs();
         validateInputs();
-        buildCurve();
+        buildCurve(builder.priorCurve, builder.warmStartWidth);
+    }
 
+    /*Converts the futures strip into the equivalent FRAs in one pass, taking the
+    Hull-White convexity adjustment off each futures rate.*/
+    private List<IborFRA> futuresToFRAs(){
+        double[] convexity = IborFuture.convexityAdjustments(valuationDate, futures, meanReversion, volatility);
+        List<IborFRA> strip = new ArrayList<>(futures.size());
+        for (int i = 0; i < futures.size(); i++){
+            IborFuture future = futures.get(i);
+            double fraRate = IborFuture.futuresRate(futurePrices[i]) - convexity[i];
+            strip.add(IborFRA.of(future.getDeliveryDate(), future.getEndOfInterestPeriod(), fraRate,
+                    future.getAccrualType(), future.getContractSize(), false));
+        }
+        return strip;
     }
     /*public IborSingleCurve(LocalDate valuationDate, List<IborDeposit> depos, List<IborFRA> fras, List<IborSwap> swaps,
                            InterpolationType interpolationType, boolean checkRefit){
@@ -57,6 +164,10 @@ public final class IborCurve extends DiscountCurve implements Serializable {
 
     public DoubleArrayList getTimes(){return times;}
     public DoubleArrayList getDiscFactors(){return dfs;}
+    public int getSolverEvaluations(){return solverEvaluations;}
+    public int getWarmStartFallbacks(){return warmStartFallbacks;}
+    //Evaluations saved against the cold build this curve was warm started from, zero for a cold build
+    public int getSolverEvaluationsSaved(){return Math.max(coldEvaluations - solverEvaluations, 0);}
 
     public IborCurve getBumpedCurve(double bump){
         List<IborDeposit> bumpedDepos = new ArrayList<>();
@@ -71,8 +182,14 @@ public final class IborCurve extends DiscountCurve implements Serializable {
         for (IborSwap swap : swaps){
             bumpedSwaps.add(swap.bump(bump));
         }
-        return new IborCurve(valuationDate, discountCurve, bumpedDepos, bumpedFRAs, bumpedSwaps,
-                interpolationType, checkRefit);
+        double[] bumpedPrices = new double[futurePrices.length];
+        for (int i = 0; i < futurePrices.length; i++){
+            bumpedPrices[i] = futurePrices[i] - 100.0 * bump;
+        }
+        return new Builder(valuationDate, interpolationType).withDiscountCurve(discountCurve)
+                .withDeposits(bumpedDepos).withFRAs(bumpedFRAs).withFutures(futures, bumpedPrices)
+                .withConvexity(meanReversion, volatility).withSwaps(bumpedSwaps)
+                .withCheckRefit(checkRefit).withPriorCurve(this).build();
     }
 
     private void checkRefit(){
@@ -86,6 +203,11 @@ public final class IborCurve extends DiscountCurve implements Serializable {
             if (Math.abs(v) > 1e-5)
                 throw new FinlibException("FRA not repriced with maturity - " + fra.getMaturityDate());
         }
+        for (IborFRA fra : futureFRAs){
+            double v = fra.value(valuationDate, this, discountCurve) / fra.getNotional();
+            if (Math.abs(v) > 1e-5)
+                throw new FinlibException("Future not repriced with maturity - " + fra.getMaturityDate());
+        }
         for (IborSwap swap : swaps){
             double v = swap.value(swap.getEffectiveDate(), this, discountCurve, Optional.empty());
             v = v / swap.getFixedLeg().getNotional();
@@ -122,6 +244,17 @@ public final class IborCurve extends DiscountCurve implements Serializable {
                 throw new FinlibException("First Swap must mature after last FRA ends");
         }
 
+        if (futureFRAs.size() > 0) {
+            LocalDate prevFutureMaturityDate = lastDepositMaturityDate.isAfter(lastFRAMaturityDate) ? lastDepositMaturityDate : lastFRAMaturityDate;
+            for (IborFRA fra : futureFRAs) {
+                if (!fra.getMaturityDate().isAfter(prevFutureMaturityDate))
+                    throw new FinlibException("Futures must end after the last Deposit, FRA and previous future");
+                prevFutureMaturityDate = fra.getMaturityDate();
+            }
+            if (swaps.size() > 0 && !firstSwapMaturityDate.isAfter(prevFutureMaturityDate))
+                throw new FinlibException("First Swap must mature after last future ends");
+        }
+
         // If both depos and swaps start after T, we need a rate to get them to
         // the first deposit. So we create a synthetic deposit rate contract.
 
@@ -193,7 +326,31 @@ public final class IborCurve extends DiscountCurve implements Serializable {
             return 0;
     }
 
-    private void buildCurve() {
+    /*Solves for the DF at the last pillar and pins it on the curve, warm starting
+    from the prior curve when one is given.*/
+    private double solveDf(UnivariateFunction f, int maxEval, double tmat, Optional<IborCurve> priorCurve, double warmStartWidth){
+        BracketingNthOrderBrentSolver solver = new BracketingNthOrderBrentSolver(1e-14, 1e-12, 5);
+        double dfMat = Double.NaN;
+        if (priorCurve.isPresent()) {
+            double guess = priorCurve.get().df(tmat);
+            try {
+                dfMat = solver.solve(maxEval, f, guess * (1.0 - warmStartWidth), guess * (1.0 + warmStartWidth),
+                        guess, AllowedSolution.ABOVE_SIDE);
+            } catch (NoBracketingException | TooManyEvaluationsException e) {
+                warmStartFallbacks++;
+            }
+            solverEvaluations += solver.getEvaluations();
+        }
+        if (Double.isNaN(dfMat)) {
+            dfMat = solver.solve(maxEval, f, 0.001, 1.2, AllowedSolution.ABOVE_SIDE);
+            solverEvaluations += solver.getEvaluations();
+        }
+        dfs.set(dfs.size() - 1, dfMat);
+        interpolator.fit(times, dfs);
+        return dfMat;
+    }
+
+    private void buildCurve(Optional<IborCurve> priorCurve, double warmStartWidth) {
             times.add(0.0);
             dfs.add(1.0);
             interpolator.fit(new DoubleArrayList(times), new DoubleArrayList(dfs));
@@ -220,9 +377,30 @@ public final class IborCurve extends DiscountCurve implements Serializable {
                     times.add(tmat);
                     dfs.add(dfMat);
 
-                    BracketingNthOrderBrentSolver solver = new BracketingNthOrderBrentSolver();
-                    dfMat = solver.solve(100, new FRAFunction(this,discountCurve, fra), 0.001, 1.2, AllowedSolution.ABOVE_SIDE);
+                    dfMat = solveDf(new FRAFunction(this,discountCurve, fra), 100, tmat, priorCurve, warmStartWidth);
+                }
+                interpolator.fit(times, dfs);
+            }
+
+            /*A future that starts on or before the last pillar needs no solver: its
+            start DF is already known, so the end DF is one division. For a
+            contiguous strip every future starts where the previous one ended.*/
+            oldTMat = times.getDouble(times.size() - 1);
+            for (IborFRA fra : futureFRAs) {
+                double tset = ChronoUnit.DAYS.between(valuationDate, fra.getStartDate()) / 365.0;
+                double tmat = ChronoUnit.DAYS.between(valuationDate, fra.getMaturityDate()) / 365.0;
+
+                if (tset <= oldTMat) {
+                    dfMat = fra.maturityDf(this);
+                    times.add(tmat);
+                    dfs.add(dfMat);
+                } else {
+                    times.add(tmat);
+                    dfs.add(dfMat);
+
+                    dfMat = solveDf(new FRAFunction(this,discountCurve, fra), 100, tmat, priorCurve, warmStartWidth);
                 }
+                oldTMat = tmat;
                 interpolator.fit(times, dfs);
             }
 
@@ -234,13 +412,14 @@ public final class IborCurve extends DiscountCurve implements Serializable {
                 times.add(tmat);
                 dfs.add(dfMat);
 
-                BracketingNthOrderBrentSolver solver = new BracketingNthOrderBrentSolver();
-                dfMat = solver.solve(10000, new SwapFunction(this,discountCurve,swap), 0.001, 1.2, AllowedSolution.ABOVE_SIDE);
+                dfMat = solveDf(new SwapFunction(this,discountCurve,swap), 10000, tmat, priorCurve, warmStartWidth);
                 //BrentSolver solver = new BrentSolver();
                 //dfMat = solver.solve(100, new SwapFunction(this,discountCurve,swap), 0.001, 1.2, dfMat);
             }
             interpolator.fit(times, dfs);
-            checkRefit();
+            coldEvaluations = priorCurve.isPresent() ? priorCurve.get().coldEvaluations : solverEvaluations;
+            if (checkRefit)
+                checkRefit();
         }
 
 
@@ -4,6 +4,7 @@ import com.finlib.finutils.*;
 import com.finlib.shared.DiscountCurve;
 
 import java.time.LocalDate;
+import java.util.Objects;
 import java.util.Optional;
 
 public final class IborDeposit {
@@ -128,6 +129,21 @@ public final class IborDeposit {
         return dayAdjustType;
     }
 
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof IborDeposit)) return false;
+        IborDeposit that = (IborDeposit) o;
+        return Double.compare(that.depositRate, depositRate) == 0 && Double.compare(that.notional, notional) == 0 &&
+                startDate.equals(that.startDate) && maturityDate.equals(that.maturityDate) &&
+                dayCountType == that.dayCountType && calendarType == that.calendarType && dayAdjustType == that.dayAdjustType;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(startDate, maturityDate, depositRate, dayCountType, notional, calendarType, dayAdjustType);
+    }
+
     public void print(){
         System.out.println("SETTLEMENT DATE:" + startDate);
         System.out.println("MATURITY DATE:" + maturityDate);
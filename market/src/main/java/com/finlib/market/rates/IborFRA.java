@@ -4,6 +4,7 @@ import com.finlib.finutils.*;
 import com.finlib.shared.DiscountCurve;
 
 import java.time.LocalDate;
+import java.util.Objects;
 import java.util.Optional;
 
 public final class IborFRA {
@@ -121,6 +122,25 @@ public final class IborFRA {
         return notional;
     }
 
+    public double getFraRate() {
+        return fraRate;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof IborFRA)) return false;
+        IborFRA that = (IborFRA) o;
+        return Double.compare(that.fraRate, fraRate) == 0 && Double.compare(that.notional, notional) == 0 &&
+                payFixedRate == that.payFixedRate && startDate.equals(that.startDate) && maturityDate.equals(that.maturityDate) &&
+                dayCountType == that.dayCountType && calendarType == that.calendarType && dayAdjustType == that.dayAdjustType;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(startDate, maturityDate, fraRate, dayCountType, notional, payFixedRate, calendarType, dayAdjustType);
+    }
+
     public void print(){
         System.out.println("SETTLEMENT DATE:"+startDate);
         System.out.println("MATURITY DATE  :"+maturityDate);
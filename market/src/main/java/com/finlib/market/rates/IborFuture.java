@@ -4,6 +4,9 @@ import com.finlib.finutils.DateUtils;
 import com.finlib.finutils.DayCountType;
 
 import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.Objects;
 
 public final class IborFuture {
     private final LocalDate todayDate;
@@ -55,4 +58,69 @@ public final class IborFuture {
         double fraRate = IborFuture.futureToFRARate(futuresPrice, convexity);
         return IborFRA.of(deliveryDate,endOfInterestPeriod,fraRate,accrualType,contractSize,false);
     }
+
+    /*Hull-White convexity adjustments for a whole strip of futures, returned as
+    decimal rates to subtract from the futures rate to get the forward rate:
+    B(t1,t2)/(t2-t1) * [B(t1,t2)(1-exp(-2a t1)) + 2a B(0,t1)^2] * sigma^2/(4a)
+    with B(t,T) = (1-exp(-a(T-t)))/a. For a vanishing mean reversion this goes to
+    the Ho-Lee adjustment sigma^2 t1 t2 / 2.*/
+    public static double[] convexityAdjustments(LocalDate valuationDate, List<IborFuture> futures,
+                                                double meanReversion, double volatility){
+        int n = futures.size();
+        double[] t1 = new double[n];
+        double[] t2 = new double[n];
+        for (int i = 0; i < n; i++){
+            t1[i] = ChronoUnit.DAYS.between(valuationDate, futures.get(i).deliveryDate) / 365.0;
+            t2[i] = ChronoUnit.DAYS.between(valuationDate, futures.get(i).endOfInterestPeriod) / 365.0;
+        }
+        double a = meanReversion;
+        double v2 = volatility * volatility;
+        double[] adjustments = new double[n];
+        if (Math.abs(a) < 1e-8) {
+            for (int i = 0; i < n; i++)
+                adjustments[i] = 0.5 * v2 * t1[i] * t2[i];
+        } else {
+            for (int i = 0; i < n; i++) {
+                double b12 = (1.0 - Math.exp(-a * (t2[i] - t1[i]))) / a;
+                double b01 = (1.0 - Math.exp(-a * t1[i])) / a;
+                adjustments[i] = b12 / (t2[i] - t1[i]) * (b12 * (1.0 - Math.exp(-2.0 * a * t1[i])) + 2.0 * a * b01 * b01)
+                        * v2 / (4.0 * a);
+            }
+        }
+        return adjustments;
+    }
+
+    public LocalDate getDeliveryDate() {
+        return deliveryDate;
+    }
+
+    public LocalDate getEndOfInterestPeriod() {
+        return endOfInterestPeriod;
+    }
+
+    public LocalDate getLastTradingDate() {
+        return lastTradingDate;
+    }
+
+    public DayCountType getAccrualType() {
+        return accrualType;
+    }
+
+    public double getContractSize() {
+        return contractSize;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof IborFuture)) return false;
+        IborFuture that = (IborFuture) o;
+        return Double.compare(that.contractSize, contractSize) == 0 && deliveryDate.equals(that.deliveryDate) &&
+                endOfInterestPeriod.equals(that.endOfInterestPeriod) && accrualType == that.accrualType;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(deliveryDate, endOfInterestPeriod, accrualType, contractSize);
+    }
 }
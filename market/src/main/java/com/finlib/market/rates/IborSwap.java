@@ -3,8 +3,8 @@ package com.finlib.market.rates;
 import com.finlib.finutils.*;
 import com.finlib.shared.DiscountCurve;
 import java.time.LocalDate;
-import java.util.ArrayList;
 import java.util.List;
+import java.util.Objects;
 import java.util.Optional;
 
 public class IborSwap {
@@ -22,17 +22,6 @@ public class IborSwap {
     private final FloatLeg floatLeg;
     private final DayAdjustType dayAdjustType;
     private final DateGenRuleType dateGenRuleType;
-    private final List<LocalDate> adjustedFixedDates = new ArrayList<>();
-    private final List<LocalDate> adjustedFloatDates = new ArrayList<>();
-    private final List<Double> fixedYearFracs = new ArrayList<>();
-    private final List<Double> fixedFlows = new ArrayList<>();
-    private final List<Double> fixedDfs = new ArrayList<>();
-    private final List<Double> fixedFlowPVs = new ArrayList<>();
-    private final List<Double> floatYearFracs = new ArrayList<>();
-    private final List<Double> floatFlows = new ArrayList<>();
-    private final List<Double> floatDfs = new ArrayList<>();
-    private final List<Double> floatFlowPVs = new ArrayList<>();
-    private final Calendar calendar;
     private final SwapType floatLegType;
     private final int paymentLag;
     private final double principal;
@@ -63,8 +52,7 @@ public class IborSwap {
         this.calendarType = calendarType;
         this.dayAdjustType = dayAdjustType;
         this.dateGenRuleType = dateGenRuleType;
-        calendar = new Calendar(calendarType);
-        maturityDate = calendar.adjust(terminationDate,dayAdjustType);
+        maturityDate = new Calendar(calendarType).adjust(terminationDate,dayAdjustType);
         floatLegType = fixedLegType == SwapType.PAY ? SwapType.RECEIVE : SwapType.PAY;
         paymentLag = 0;
         principal = 0.0;
@@ -187,6 +175,13 @@ public class IborSwap {
         return value;
     }
 
+    //Fixed leg ladder first, then the float leg
+    public List<CashflowReport> cashflowReport(LocalDate valuationDate, DiscountCurve indexCurve, Optional<DiscountCurve> discountCurve, Optional<Double> firstFixing){
+        DiscountCurve discCurve = discountCurve.orElse(indexCurve);
+        return List.of(fixedLeg.cashflowReport(valuationDate, discCurve),
+                floatLeg.cashflowReport(valuationDate, indexCurve, discCurve, firstFixing));
+    }
+
 
     public double pv01(LocalDate valuationDate, DiscountCurve discountCurve) {
         double pv = Math.abs(fixedLeg.value(valuationDate, discountCurve));
@@ -205,6 +200,23 @@ public class IborSwap {
     }
 
 
+    public LocalDate getTerminationDate() {
+        return terminationDate;
+    }
+
+    public SwapType getFixedLegType() { return fixedLegType;}
+    public double getFixedCoupon() { return fixedCoupon;}
+    public FrequencyType getFixedFreqType() { return fixedFreqType;}
+    public DayCountType getFixedDayCountType() { return fixedDayCountType;}
+    public double getNotional() { return notional;}
+    public double getFloatSpread() { return floatSpread;}
+    public FrequencyType getFloatFreqType() { return floatFreqType;}
+    public DayCountType getFloatDayCountType() { return floatDayCountType;}
+    public CalendarType getCalendarType() { return calendarType;}
+    public DayAdjustType getDayAdjustType() { return dayAdjustType;}
+    public DateGenRuleType getDateGenRuleType() { return dateGenRuleType;}
+
+
     public FixedLeg getFixedLeg() {
         return fixedLeg;
     }
@@ -268,4 +280,24 @@ public class IborSwap {
 
         return flatPV01;
     }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof IborSwap)) return false;
+        IborSwap that = (IborSwap) o;
+        return Double.compare(that.fixedCoupon, fixedCoupon) == 0 && Double.compare(that.notional, notional) == 0 &&
+                Double.compare(that.floatSpread, floatSpread) == 0 && effectiveDate.equals(that.effectiveDate) &&
+                terminationDate.equals(that.terminationDate) && fixedLegType == that.fixedLegType &&
+                fixedFreqType == that.fixedFreqType && fixedDayCountType == that.fixedDayCountType &&
+                floatFreqType == that.floatFreqType && floatDayCountType == that.floatDayCountType &&
+                calendarType == that.calendarType && dayAdjustType == that.dayAdjustType &&
+                dateGenRuleType == that.dateGenRuleType;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(effectiveDate, terminationDate, fixedLegType, fixedCoupon, fixedFreqType, fixedDayCountType,
+                notional, floatSpread, floatFreqType, floatDayCountType, calendarType, dayAdjustType, dateGenRuleType);
+    }
 }
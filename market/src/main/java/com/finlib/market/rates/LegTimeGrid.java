@@ -0,0 +1,68 @@
+package com.finlib.market.rates;
+
+import com.finlib.finutils.DayCountType;
+import com.finlib.shared.DiscountCurve;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/*Curve times of a leg's accrual and payment dates. They only depend on the curve
+valuation date and day count, so a leg keeps the last grid it built and reuses it
+for every curve that shares both, which covers bootstrap iterations and scenario
+curves. Grids are immutable and are swapped in whole, so a leg valued from several
+threads at worst builds the same grid twice.*/
+final class LegTimeGrid {
+    private final LocalDate valuationDate;
+    private final DayCountType dayCountType;
+    final double[] startTimes;
+    final double[] endTimes;
+    final double[] paymentTimes;
+
+    private LegTimeGrid(DiscountCurve curve, List<LocalDate> startDates, List<LocalDate> endDates, List<LocalDate> paymentDates){
+        this.valuationDate = curve.getValuationDate();
+        this.dayCountType = curve.getDayCountType();
+        this.startTimes = times(curve, startDates);
+        this.endTimes = times(curve, endDates);
+        this.paymentTimes = times(curve, paymentDates);
+    }
+
+    private LegTimeGrid(DiscountCurve curve, int[] startDays, int[] endDays, int[] paymentDays){
+        this.valuationDate = curve.getValuationDate();
+        this.dayCountType = curve.getDayCountType();
+        this.startTimes = times(curve, startDays);
+        this.endTimes = endDays == startDays ? startTimes : times(curve, endDays);
+        this.paymentTimes = paymentDays == startDays ? startTimes : times(curve, paymentDays);
+    }
+
+    static LegTimeGrid of(LegTimeGrid cached, DiscountCurve curve, List<LocalDate> startDates, List<LocalDate> endDates,
+                          List<LocalDate> paymentDates){
+        if (cached != null && cached.matches(curve))
+            return cached;
+        return new LegTimeGrid(curve, startDates, endDates, paymentDates);
+    }
+
+    //Same grid for dates kept as epoch days
+    static LegTimeGrid of(LegTimeGrid cached, DiscountCurve curve, int[] startDays, int[] endDays, int[] paymentDays){
+        if (cached != null && cached.matches(curve))
+            return cached;
+        return new LegTimeGrid(curve, startDays, endDays, paymentDays);
+    }
+
+    boolean matches(DiscountCurve curve){
+        return valuationDate.equals(curve.getValuationDate()) && dayCountType == curve.getDayCountType();
+    }
+
+    private static double[] times(DiscountCurve curve, List<LocalDate> dates){
+        double[] times = new double[dates.size()];
+        for (int i = 0; i < times.length; i++)
+            times[i] = curve.yearFrac(dates.get(i));
+        return times;
+    }
+
+    private static double[] times(DiscountCurve curve, int[] days){
+        double[] times = new double[days.length];
+        for (int i = 0; i < times.length; i++)
+            times[i] = curve.yearFrac(LocalDate.ofEpochDay(days[i]));
+        return times;
+    }
+}
@@ -0,0 +1,79 @@
+package com.finlib.market.rates;
+
+import com.finlib.finutils.FinlibException;
+import com.finlib.shared.CachedDiscountCurve;
+import com.finlib.shared.DiscountCurve;
+import com.finlib.shared.InterpolationType;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/*Builds a dual curve set in dependency order. The OIS discount curve is
+bootstrapped first from overnight deposits and OIS swaps (IborSwap.ofOIS) on
+its own. Every Ibor projection curve is then bootstrapped against it, reading
+discount factors through a date-keyed cache because the discount curve does not
+move while the projection solvers iterate.*/
+public final class MultiCurveBuilder {
+    private final LocalDate valuationDate;
+    private final InterpolationType interpolationType;
+    private List<IborDeposit> oisDepos = new ArrayList<>();
+    private List<IborSwap> oisSwaps = new ArrayList<>();
+    private final Map<String, Instruments> projections = new LinkedHashMap<>();
+    private boolean checkRefit = true;
+
+    private static final class Instruments {
+        private final List<IborDeposit> depos;
+        private final List<IborFRA> fras;
+        private final List<IborSwap> swaps;
+        Instruments(List<IborDeposit> depos, List<IborFRA> fras, List<IborSwap> swaps){
+            this.depos = depos;
+            this.fras = fras;
+            this.swaps = swaps;
+        }
+    }
+
+    public MultiCurveBuilder(LocalDate valuationDate, InterpolationType interpolationType){
+        this.valuationDate = valuationDate;
+        this.interpolationType = interpolationType;
+    }
+
+    public MultiCurveBuilder withOISDeposits(List<IborDeposit> oisDepos){
+        this.oisDepos = oisDepos;
+        return this;
+    }
+    public MultiCurveBuilder withOISSwaps(List<IborSwap> oisSwaps){
+        this.oisSwaps = oisSwaps;
+        return this;
+    }
+    public MultiCurveBuilder withProjectionCurve(String index, List<IborDeposit> depos, List<IborFRA> fras, List<IborSwap> swaps){
+        this.projections.put(index, new Instruments(depos, fras, swaps));
+        return this;
+    }
+    public MultiCurveBuilder withCheckRefit(boolean checkRefit){
+        this.checkRefit = checkRefit;
+        return this;
+    }
+
+    public CurveSet build(){
+        if (oisSwaps.isEmpty())
+            throw new FinlibException("OIS swaps are needed to build the discount curve");
+
+        //IborCurve may replace the first deposit with a synthetic one, so it gets its own copies
+        IborCurve oisCurve = new IborCurve(valuationDate, Optional.empty(), new ArrayList<>(oisDepos),
+                new ArrayList<>(), new ArrayList<>(oisSwaps), interpolationType, checkRefit);
+        Optional<DiscountCurve> discountCurve = Optional.of(CachedDiscountCurve.of(oisCurve));
+
+        Map<String, IborCurve> projectionCurves = new LinkedHashMap<>();
+        for (Map.Entry<String, Instruments> entry : projections.entrySet()){
+            Instruments inst = entry.getValue();
+            IborCurve curve = new IborCurve(valuationDate, discountCurve, new ArrayList<>(inst.depos),
+                    new ArrayList<>(inst.fras), new ArrayList<>(inst.swaps), interpolationType, checkRefit);
+            projectionCurves.put(entry.getKey(), curve);
+        }
+        return CurveSet.of(valuationDate, oisCurve, projectionCurves);
+    }
+}
@@ -0,0 +1,235 @@
+package com.finlib.market.rates;
+
+import com.finlib.finutils.FinlibException;
+import com.finlib.shared.DiscountCurve;
+import com.finlib.shared.InterpolationType;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+
+/*Rebuilds an IborCurve from a stream of quote updates. Quotes are written into
+a latest-value-wins slot per instrument and a single worker thread drains all
+pending slots before every rebuild, so ticks arriving while a build is running
+are coalesced into the next one. The rebuild rate therefore follows the load:
+one build per tick when the feed is quiet, one build per build-time when it is
+busy. Each new curve is published through an atomic reference and readers never
+block.*/
+public final class StreamingCurveService implements AutoCloseable {
+    private static final long NO_QUOTE = Double.doubleToRawLongBits(Double.NaN);
+
+    private final LocalDate valuationDate;
+    private final Optional<DiscountCurve> discountCurve;
+    private final InterpolationType interpolationType;
+    private final List<IborDeposit> depos;
+    private final List<IborFRA> fras;
+    private final List<IborSwap> swaps;
+    private final double[] quotes;
+    private final AtomicLongArray pending;
+    private final AtomicBoolean dirty = new AtomicBoolean(false);
+    private final AtomicReference<IborCurve> curve = new AtomicReference<>();
+    private final Consumer<IborCurve> listener;
+    private final long minRebuildNanos;
+    private final Thread worker;
+    private volatile boolean running = true;
+
+    private final AtomicLong ticks = new AtomicLong();
+    private final AtomicLong rebuilds = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+    private final AtomicLong listenerFailures = new AtomicLong();
+    private volatile long lastBuildNanos;
+    private volatile RuntimeException lastFailure;
+
+    public static class Builder {
+        private final LocalDate valuationDate;
+        private final InterpolationType interpolationType;
+        private Optional<DiscountCurve> discountCurve = Optional.empty();
+        private List<IborDeposit> depos = new ArrayList<>();
+        private List<IborFRA> fras = new ArrayList<>();
+        private List<IborSwap> swaps = new ArrayList<>();
+        private Consumer<IborCurve> listener = c -> {};
+        private long minRebuildNanos = 0L;
+
+        public Builder(LocalDate valuationDate, InterpolationType interpolationType){
+            this.valuationDate = valuationDate;
+            this.interpolationType = interpolationType;
+        }
+        public Builder withDiscountCurve(DiscountCurve discountCurve){
+            this.discountCurve = Optional.of(discountCurve);
+            return this;
+        }
+        public Builder withDeposits(List<IborDeposit> depos){
+            this.depos = depos;
+            return this;
+        }
+        public Builder withFRAs(List<IborFRA> fras){
+            this.fras = fras;
+            return this;
+        }
+        public Builder withSwaps(List<IborSwap> swaps){
+            this.swaps = swaps;
+            return this;
+        }
+        public Builder withListener(Consumer<IborCurve> listener){
+            this.listener = listener;
+            return this;
+        }
+        //Optional floor on the time between two rebuilds, on top of the natural coalescing
+        public Builder withMinRebuildInterval(long nanos){
+            this.minRebuildNanos = nanos;
+            return this;
+        }
+        public StreamingCurveService build(){
+            return new StreamingCurveService(this);
+        }
+    }
+
+    private StreamingCurveService(Builder builder){
+        this.valuationDate = builder.valuationDate;
+        this.discountCurve = builder.discountCurve;
+        this.interpolationType = builder.interpolationType;
+        this.depos = List.copyOf(builder.depos);
+        this.fras = List.copyOf(builder.fras);
+        this.swaps = List.copyOf(builder.swaps);
+        this.listener = builder.listener;
+        this.minRebuildNanos = builder.minRebuildNanos;
+
+        int numQuotes = depos.size() + fras.size() + swaps.size();
+        quotes = new double[numQuotes];
+        pending = new AtomicLongArray(numQuotes);
+        int k = 0;
+        for (IborDeposit depo : depos)
+            quotes[k++] = depo.getDepositRate();
+        for (IborFRA fra : fras)
+            quotes[k++] = fra.getFraRate();
+        for (IborSwap swap : swaps)
+            quotes[k++] = swap.getFixedLeg().getCoupon();
+        for (int i = 0; i < numQuotes; i++)
+            pending.set(i, NO_QUOTE);
+
+        //the initial curve is built on the caller's thread so that current() is never null
+        curve.set(rebuild());
+        worker = new Thread(this::run, "ibor-curve-stream-" + valuationDate);
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    public void onDepositQuote(int index, double rate){
+        onQuote(index, rate);
+    }
+
+    public void onFRAQuote(int index, double rate){
+        onQuote(depos.size() + index, rate);
+    }
+
+    public void onSwapQuote(int index, double rate){
+        onQuote(depos.size() + fras.size() + index, rate);
+    }
+
+    //Quote index runs over deposits, then FRAs, then swaps in the order they were supplied
+    public void onQuote(int index, double rate){
+        if (!running)
+            throw new IllegalStateException("Curve service has been closed");
+        //NaN marks an empty slot, so it can never be taken as a quote
+        if (!Double.isFinite(rate))
+            throw new FinlibException("Quote " + rate + " for instrument " + index + " is not finite");
+        pending.set(index, Double.doubleToRawLongBits(rate));
+        ticks.incrementAndGet();
+        if (dirty.compareAndSet(false, true))
+            LockSupport.unpark(worker);
+    }
+
+    public IborCurve current(){
+        return curve.get();
+    }
+
+    public long getTicks(){ return ticks.get();}
+    public long getRebuilds(){ return rebuilds.get();}
+    public long getFailures(){ return failures.get();}
+    //Listener calls that threw; the curve they were handed had already been published
+    public long getListenerFailures(){ return listenerFailures.get();}
+    public long getLastBuildNanos(){ return lastBuildNanos;}
+    public Optional<RuntimeException> getLastFailure(){ return Optional.ofNullable(lastFailure);}
+
+    private void run(){
+        while (running){
+            if (!dirty.get()){
+                LockSupport.park(this);
+                continue;
+            }
+            dirty.set(false);
+            if (!drain())
+                continue;
+            IborCurve newCurve = null;
+            try {
+                newCurve = rebuild();
+                curve.set(newCurve);
+                rebuilds.incrementAndGet();
+            } catch (RuntimeException e){
+                //keep publishing the last good curve, the next tick triggers another attempt
+                failures.incrementAndGet();
+                lastFailure = e;
+            }
+            if (newCurve != null){
+                try {
+                    listener.accept(newCurve);
+                } catch (RuntimeException e){
+                    listenerFailures.incrementAndGet();
+                }
+            }
+            long pause = minRebuildNanos - lastBuildNanos;
+            if (pause > 0)
+                LockSupport.parkNanos(this, pause);
+        }
+    }
+
+    private boolean drain(){
+        boolean changed = false;
+        for (int i = 0; i < quotes.length; i++){
+            long bits = pending.getAndSet(i, NO_QUOTE);
+            if (bits != NO_QUOTE){
+                quotes[i] = Double.longBitsToDouble(bits);
+                changed = true;
+            }
+        }
+        return changed;
+    }
+
+    private IborCurve rebuild(){
+        long start = System.nanoTime();
+        try {
+            List<IborDeposit> quotedDepos = new ArrayList<>(depos.size());
+            List<IborFRA> quotedFRAs = new ArrayList<>(fras.size());
+            List<IborSwap> quotedSwaps = new ArrayList<>(swaps.size());
+            int k = 0;
+            for (IborDeposit depo : depos)
+                quotedDepos.add(depo.bump(quotes[k++] - depo.getDepositRate()));
+            for (IborFRA fra : fras)
+                quotedFRAs.add(fra.bump(quotes[k++] - fra.getFraRate()));
+            for (IborSwap swap : swaps)
+                quotedSwaps.add(swap.bump(quotes[k++] - swap.getFixedLeg().getCoupon()));
+            return new IborCurve(valuationDate, discountCurve, quotedDepos, quotedFRAs, quotedSwaps, interpolationType, false);
+        } finally {
+            //a failed build also paces the next one
+            lastBuildNanos = System.nanoTime() - start;
+        }
+    }
+
+    @Override
+    public void close(){
+        running = false;
+        LockSupport.unpark(worker);
+        try {
+            worker.join();
+        } catch (InterruptedException e){
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,174 @@
+package com.finlib.market.rates;
+
+import com.finlib.shared.CurveChange;
+import com.finlib.shared.DiscountCurve;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+
+/*Per-trade cache of the discounted flows of a swap against the curves it was last
+valued on. revalue compares the new curves with the cached ones through
+CurveChange and recomputes only the flows whose payment, or accrual start and end
+for the float leg, fall in a changed time range, then returns the PV change.
+
+The curves themselves serve as the version stamp: passing the same instance again
+costs nothing. A ladder belongs to one thread.*/
+public final class SwapPVLadder {
+    private final IborSwap swap;
+    private final LocalDate valuationDate;
+    private final boolean separateDiscounting;
+    private final Optional<Double> firstFixing;
+    private final int firstFixingIndex;
+    private final double fixedSign;
+    private final double floatSign;
+    private DiscountCurve indexCurve;
+    private DiscountCurve discountCurve;
+    private LegTimeGrid fixedGrid;
+    private LegTimeGrid indexGrid;
+    private LegTimeGrid floatDiscountGrid;
+    //flow amount times its discount factor, not yet divided by the valuation date df
+    private final double[] fixedPVs;
+    private final double[] floatPVs;
+    private final double[] floatAmounts;
+    private double dfValDt;
+    private double pv;
+    private int lastRecomputed;
+
+    private SwapPVLadder(IborSwap swap, LocalDate valuationDate, DiscountCurve indexCurve, Optional<DiscountCurve> discountCurve,
+                         Optional<Double> firstFixing){
+        this.swap = swap;
+        this.valuationDate = valuationDate;
+        this.separateDiscounting = discountCurve.isPresent();
+        this.firstFixing = firstFixing;
+        this.fixedSign = swap.getFixedLeg().getLegType() == SwapType.PAY ? -1.0 : 1.0;
+        this.floatSign = swap.getFloatLeg().getLegType() == SwapType.PAY ? -1.0 : 1.0;
+        List<LocalDate> floatPayments = swap.getFloatLeg().getPaymentDates();
+        int index = -1;
+        if (firstFixing.isPresent()){
+            for (int i = 0; i < floatPayments.size() && index < 0; i++){
+                if (floatPayments.get(i).isAfter(valuationDate))
+                    index = i;
+            }
+        }
+        this.firstFixingIndex = index;
+        this.fixedPVs = new double[swap.getFixedLeg().getPaymentDates().size()];
+        this.floatPVs = new double[floatPayments.size()];
+        this.floatAmounts = new double[floatPayments.size()];
+        rebuild(indexCurve, discountCurve.orElse(indexCurve));
+    }
+
+    public static SwapPVLadder of(IborSwap swap, LocalDate valuationDate, DiscountCurve indexCurve, Optional<DiscountCurve> discountCurve,
+                                  Optional<Double> firstFixing){
+        return new SwapPVLadder(swap, valuationDate, indexCurve, discountCurve, firstFixing);
+    }
+
+    public double value(){
+        return pv;
+    }
+
+    //Moves the ladder to the new curves and returns the change in PV
+    public double revalue(DiscountCurve newIndexCurve, Optional<DiscountCurve> newDiscountCurve){
+        if (newDiscountCurve.isPresent() != separateDiscounting)
+            throw new IllegalArgumentException("Ladder was built " + (separateDiscounting ? "with" : "without") + " a discount curve");
+        DiscountCurve newDiscCurve = newDiscountCurve.orElse(newIndexCurve);
+        CurveChange indexChange = CurveChange.between(indexCurve, newIndexCurve);
+        CurveChange discountChange = CurveChange.between(discountCurve, newDiscCurve);
+        double oldPV = pv;
+        if (indexChange.isAll() || discountChange.isAll()){
+            rebuild(newIndexCurve, newDiscCurve);
+            return pv - oldPV;
+        }
+        indexCurve = newIndexCurve;
+        discountCurve = newDiscCurve;
+        lastRecomputed = 0;
+        if (indexChange.isNone() && discountChange.isNone())
+            return 0.0;
+
+        FixedLeg fixedLeg = swap.getFixedLeg();
+        for (int i = 0; i < fixedPVs.length; i++){
+            if (fixedLeg.getPaymentDates().get(i).isAfter(valuationDate) && discountChange.affects(fixedGrid.paymentTimes[i])){
+                fixedPVs[i] = fixedAmount(fixedLeg, i) * discountCurve.df(fixedGrid.paymentTimes[i]);
+                lastRecomputed++;
+            }
+        }
+        FloatLeg floatLeg = swap.getFloatLeg();
+        for (int i = 0; i < floatPVs.length; i++){
+            if (!floatLeg.getPaymentDates().get(i).isAfter(valuationDate))
+                continue;
+            boolean projection = i != firstFixingIndex
+                    && (indexChange.affects(indexGrid.startTimes[i]) || indexChange.affects(indexGrid.endTimes[i]));
+            boolean discounting = discountChange.affects(floatDiscountGrid.paymentTimes[i]);
+            if (projection)
+                floatAmounts[i] = floatAmount(floatLeg, i);
+            if (projection || discounting){
+                floatPVs[i] = floatAmounts[i] * discountCurve.df(floatDiscountGrid.paymentTimes[i]);
+                lastRecomputed++;
+            }
+        }
+        dfValDt = discountCurve.df(valuationDate);
+        pv = total();
+        return pv - oldPV;
+    }
+
+    //Number of flows repriced by the last revalue
+    public int getLastRecomputed(){
+        return lastRecomputed;
+    }
+
+    public int getNumFlows(){
+        return fixedPVs.length + floatPVs.length;
+    }
+
+    private void rebuild(DiscountCurve newIndexCurve, DiscountCurve newDiscountCurve){
+        indexCurve = newIndexCurve;
+        discountCurve = newDiscountCurve;
+        FixedLeg fixedLeg = swap.getFixedLeg();
+        FloatLeg floatLeg = swap.getFloatLeg();
+        fixedGrid = LegTimeGrid.of(null, discountCurve, fixedLeg.getPaymentDates(), fixedLeg.getPaymentDates(), fixedLeg.getPaymentDates());
+        indexGrid = LegTimeGrid.of(null, indexCurve, floatLeg.getStartAccrueDates(), floatLeg.getEndAccrueDates(), floatLeg.getPaymentDates());
+        floatDiscountGrid = LegTimeGrid.of(indexGrid, discountCurve, floatLeg.getStartAccrueDates(), floatLeg.getEndAccrueDates(),
+                floatLeg.getPaymentDates());
+        for (int i = 0; i < fixedPVs.length; i++){
+            boolean live = fixedLeg.getPaymentDates().get(i).isAfter(valuationDate);
+            fixedPVs[i] = live ? fixedAmount(fixedLeg, i) * discountCurve.df(fixedGrid.paymentTimes[i]) : 0.0;
+        }
+        for (int i = 0; i < floatPVs.length; i++){
+            boolean live = floatLeg.getPaymentDates().get(i).isAfter(valuationDate);
+            floatAmounts[i] = live ? floatAmount(floatLeg, i) : 0.0;
+            floatPVs[i] = live ? floatAmounts[i] * discountCurve.df(floatDiscountGrid.paymentTimes[i]) : 0.0;
+        }
+        dfValDt = discountCurve.df(valuationDate);
+        lastRecomputed = getNumFlows();
+        pv = total();
+    }
+
+    private double fixedAmount(FixedLeg leg, int i){
+        double amount = leg.getPayments().getDouble(i);
+        if (i == fixedPVs.length - 1)
+            amount += leg.getPrincipal() * leg.getNotional();
+        return fixedSign * amount;
+    }
+
+    private double floatAmount(FloatLeg leg, int i){
+        double alpha = leg.getYearFracs().getDouble(i);
+        double fwdRate;
+        if (i == firstFixingIndex)
+            fwdRate = firstFixing.get();
+        else
+            fwdRate = (indexCurve.df(indexGrid.startTimes[i]) / indexCurve.df(indexGrid.endTimes[i]) - 1.0) / alpha;
+        double amount = (fwdRate + leg.getSpread()) * alpha * leg.getNotional();
+        if (i == floatPVs.length - 1)
+            amount += leg.getPrincipal() * leg.getNotional();
+        return floatSign * amount;
+    }
+
+    private double total(){
+        double sum = 0.0;
+        for (double x : fixedPVs)
+            sum += x;
+        for (double x : floatPVs)
+            sum += x;
+        return sum / dfValDt;
+    }
+}
@@ -0,0 +1,193 @@
+package com.finlib.market.rates;
+
+import com.finlib.finutils.FinlibException;
+import com.finlib.shared.DiscountCurve;
+import it.unimi.dsi.fastutil.doubles.DoubleArrayList;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/*Column layout of a book of Ibor swaps. All legs are flattened into primitive
+arrays when the portfolio is built, one block per projection index, so valueAll
+walks every cash flow of a block in a single pass without touching the leg
+objects. Payment and accrual dates are kept as epoch days and turned into curve
+times with each curve's own day count, once per curve valuation date. Fixed amounts, signs and principal
+exchanges are folded in up front.
+
+Swaps are valued as IborSwap.value does without a first fixing: periods that
+started before the valuation date project from df(0).*/
+public final class SwapPortfolio {
+    private final int numTrades;
+    private final Block[] blocks;
+
+    private static final class Block {
+        private final String index;
+        private final int[] trades;
+        //fixed leg flows of trade k are fixedOffsets[k] until fixedOffsets[k+1]
+        private final int[] fixedOffsets;
+        private final int[] fixedPayDays;
+        private final double[] fixedAmounts;
+        private final int[] floatOffsets;
+        private final int[] floatStartDays;
+        private final int[] floatEndDays;
+        private final int[] floatPayDays;
+        //signed notional applied to the projected forward, and everything that does not depend on it
+        private final double[] floatNotionals;
+        private final double[] floatFixedAmounts;
+        //curve times of the days above, kept for as long as the curves keep their valuation date
+        private volatile LegTimeGrid fixedGrid;
+        private volatile LegTimeGrid indexGrid;
+        private volatile LegTimeGrid discountGrid;
+
+        private Block(String index, List<IborSwap> swaps, IntArrayList trades){
+            this.index = index;
+            this.trades = trades.toIntArray();
+            IntArrayList fixedOffsets = new IntArrayList(), fixedPayDays = new IntArrayList();
+            IntArrayList floatOffsets = new IntArrayList(), floatStartDays = new IntArrayList();
+            IntArrayList floatEndDays = new IntArrayList(), floatPayDays = new IntArrayList();
+            DoubleArrayList fixedAmounts = new DoubleArrayList(), floatNotionals = new DoubleArrayList();
+            DoubleArrayList floatFixedAmounts = new DoubleArrayList();
+            for (IborSwap swap : swaps){
+                FixedLeg fixedLeg = swap.getFixedLeg();
+                double sign = fixedLeg.getLegType() == SwapType.PAY ? -1.0 : 1.0;
+                fixedOffsets.add(fixedPayDays.size());
+                List<LocalDate> paymentDates = fixedLeg.getPaymentDates();
+                DoubleArrayList payments = fixedLeg.getPayments();
+                for (int i = 0; i < paymentDates.size(); i++){
+                    double amount = payments.getDouble(i);
+                    if (i == paymentDates.size() - 1)
+                        amount += fixedLeg.getPrincipal() * fixedLeg.getNotional();
+                    fixedPayDays.add((int) paymentDates.get(i).toEpochDay());
+                    fixedAmounts.add(sign * amount);
+                }
+
+                FloatLeg floatLeg = swap.getFloatLeg();
+                sign = floatLeg.getLegType() == SwapType.PAY ? -1.0 : 1.0;
+                floatOffsets.add(floatPayDays.size());
+                paymentDates = floatLeg.getPaymentDates();
+                double notional = floatLeg.getNotional();
+                for (int i = 0; i < paymentDates.size(); i++){
+                    double amount = floatLeg.getSpread() * floatLeg.getYearFracs().getDouble(i) * notional;
+                    if (i == paymentDates.size() - 1)
+                        amount += floatLeg.getPrincipal() * notional;
+                    floatStartDays.add((int) floatLeg.getStartAccrueDates().get(i).toEpochDay());
+                    floatEndDays.add((int) floatLeg.getEndAccrueDates().get(i).toEpochDay());
+                    floatPayDays.add((int) paymentDates.get(i).toEpochDay());
+                    floatNotionals.add(sign * notional);
+                    floatFixedAmounts.add(sign * amount);
+                }
+            }
+            fixedOffsets.add(fixedPayDays.size());
+            floatOffsets.add(floatPayDays.size());
+            this.fixedOffsets = fixedOffsets.toIntArray();
+            this.fixedPayDays = fixedPayDays.toIntArray();
+            this.fixedAmounts = fixedAmounts.toDoubleArray();
+            this.floatOffsets = floatOffsets.toIntArray();
+            this.floatStartDays = floatStartDays.toIntArray();
+            this.floatEndDays = floatEndDays.toIntArray();
+            this.floatPayDays = floatPayDays.toIntArray();
+            this.floatNotionals = floatNotionals.toDoubleArray();
+            this.floatFixedAmounts = floatFixedAmounts.toDoubleArray();
+        }
+
+        private void value(LocalDate valuationDate, DiscountCurve discountCurve, DiscountCurve indexCurve, double[] pvOut){
+            int valDay = (int) valuationDate.toEpochDay();
+            LegTimeGrid fixedGrid = fixedGrid(discountCurve);
+            LegTimeGrid indexGrid = indexGrid(indexCurve);
+            LegTimeGrid discountGrid = discountGrid(discountCurve);
+            double dfValDt = discountCurve.df(valuationDate);
+            for (int k = 0; k < trades.length; k++){
+                double pv = 0.0;
+                for (int i = fixedOffsets[k]; i < fixedOffsets[k + 1]; i++){
+                    if (fixedPayDays[i] > valDay)
+                        pv += fixedAmounts[i] * discountCurve.df(fixedGrid.paymentTimes[i]);
+                }
+                for (int i = floatOffsets[k]; i < floatOffsets[k + 1]; i++){
+                    if (floatPayDays[i] > valDay){
+                        double dfStart = indexCurve.df(indexGrid.startTimes[i]);
+                        double dfEnd = indexCurve.df(indexGrid.endTimes[i]);
+                        double amount = floatNotionals[i] * (dfStart / dfEnd - 1.0) + floatFixedAmounts[i];
+                        pv += amount * discountCurve.df(discountGrid.paymentTimes[i]);
+                    }
+                }
+                pvOut[trades[k]] = pv / dfValDt;
+            }
+        }
+
+        private LegTimeGrid fixedGrid(DiscountCurve curve){
+            LegTimeGrid grid = LegTimeGrid.of(fixedGrid, curve, fixedPayDays, fixedPayDays, fixedPayDays);
+            if (grid != fixedGrid)
+                fixedGrid = grid;
+            return grid;
+        }
+
+        private LegTimeGrid indexGrid(DiscountCurve curve){
+            LegTimeGrid grid = LegTimeGrid.of(indexGrid, curve, floatStartDays, floatEndDays, floatPayDays);
+            if (grid != indexGrid)
+                indexGrid = grid;
+            return grid;
+        }
+
+        //Single curve books share the index grid
+        private LegTimeGrid discountGrid(DiscountCurve curve){
+            LegTimeGrid index = indexGrid;
+            if (index != null && index.matches(curve))
+                return index;
+            LegTimeGrid grid = LegTimeGrid.of(discountGrid, curve, floatStartDays, floatEndDays, floatPayDays);
+            if (grid != discountGrid)
+                discountGrid = grid;
+            return grid;
+        }
+    }
+
+    public static class Builder {
+        private final Map<String, List<IborSwap>> swaps = new LinkedHashMap<>();
+        private final Map<String, IntArrayList> trades = new LinkedHashMap<>();
+        private int numTrades = 0;
+
+        //Trades are numbered in the order they are added and pvOut follows the same order
+        public Builder add(String index, IborSwap swap){
+            swaps.computeIfAbsent(index, k -> new ArrayList<>()).add(swap);
+            trades.computeIfAbsent(index, k -> new IntArrayList()).add(numTrades++);
+            return this;
+        }
+        public Builder addAll(String index, List<IborSwap> swaps){
+            for (IborSwap swap : swaps)
+                add(index, swap);
+            return this;
+        }
+        public SwapPortfolio build(){
+            return new SwapPortfolio(this);
+        }
+    }
+
+    private SwapPortfolio(Builder builder){
+        this.numTrades = builder.numTrades;
+        this.blocks = new Block[builder.swaps.size()];
+        int b = 0;
+        for (Map.Entry<String, List<IborSwap>> entry : builder.swaps.entrySet())
+            blocks[b++] = new Block(entry.getKey(), entry.getValue(), builder.trades.get(entry.getKey()));
+    }
+
+    public void valueAll(CurveSet curveSet, double[] pvOut){
+        if (pvOut.length < numTrades)
+            throw new FinlibException("Output array holds " + pvOut.length + " values for " + numTrades + " trades");
+        DiscountCurve discountCurve = curveSet.getDiscountCurve();
+        for (Block block : blocks)
+            block.value(curveSet.getValuationDate(), discountCurve, curveSet.getProjectionCurve(block.index), pvOut);
+    }
+
+    public double[] valueAll(CurveSet curveSet){
+        double[] pvOut = new double[numTrades];
+        valueAll(curveSet, pvOut);
+        return pvOut;
+    }
+
+    public int size(){
+        return numTrades;
+    }
+}
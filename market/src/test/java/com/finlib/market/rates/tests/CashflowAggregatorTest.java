@@ -0,0 +1,65 @@
+package com.finlib.market.rates.tests;
+
+import com.finlib.finutils.*;
+import com.finlib.market.portfolio.CashflowAggregator;
+import com.finlib.market.rates.*;
+import com.finlib.shared.DiscountCurve;
+import com.finlib.shared.InterpolationType;
+import it.unimi.dsi.fastutil.doubles.DoubleArrayList;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.Optional;
+
+public class CashflowAggregatorTest {
+
+    @Test
+    public void nettedLadderMatchesTradeValues(){
+        LocalDate valuationDate = LocalDate.of(2018,6,6);
+        IborCurve curve = CurveFixtures.liborCurve(valuationDate);
+        String[] tenors = {"2Y", "5Y", "10Y"};
+        CashflowAggregator aggregator = new CashflowAggregator(valuationDate);
+        double expected = 0.0;
+        int numFlows = 0;
+        for (int i = 0; i < 60; i++){
+            //trades on a handful of IMM-like start dates share their payment dates
+            LocalDate start = valuationDate.plusMonths(3 * (i % 4) - 6);
+            IborSwap swap = IborSwap.of(start, tenors[i % 3], i % 2 == 0 ? SwapType.PAY : SwapType.RECEIVE,
+                    0.02 + 0.001 * (i % 7), FrequencyType.SEMI_ANNUAL, DayCountType.THIRTY_E_360);
+            aggregator.add("USD", "LIBOR3M", swap, curve, Optional.empty());
+            expected += swap.value(valuationDate, curve, Optional.empty(), Optional.empty());
+            numFlows += swap.getFixedLeg().getPaymentDates().size() + swap.getFloatLeg().getPaymentDates().size();
+        }
+        Assertions.assertEquals(expected, aggregator.value("USD", "LIBOR3M", curve), 1e-6);
+        Assertions.assertTrue(aggregator.getNumDates("USD", "LIBOR3M") < numFlows / 10);
+        Assertions.assertEquals(0, aggregator.getNumDates("EUR", "LIBOR3M"));
+        Assertions.assertThrows(FinlibException.class, () -> aggregator.value("EUR", "LIBOR3M", curve));
+    }
+
+    @Test
+    public void parallelShiftMatchesShiftedCurve(){
+        LocalDate valuationDate = LocalDate.of(2018,6,6);
+        IborCurve curve = CurveFixtures.liborCurve(valuationDate);
+        CashflowAggregator aggregator = new CashflowAggregator(valuationDate);
+        aggregator.add("USD", "OIS", valuationDate.minusDays(1), 1e9);
+        for (int i = 1; i <= 20; i++)
+            aggregator.add("USD", "OIS", valuationDate.plusMonths(6 * i), i % 5 == 0 ? -1_000_000 : 250_000);
+        Assertions.assertEquals(20, aggregator.getNumDates("USD", "OIS"));
+        Assertions.assertEquals(valuationDate.plusMonths(6), aggregator.getPaymentDates("USD", "OIS")[0]);
+
+        double[] shifts = {0.0, 0.0001, -0.01};
+        double[] pvs = aggregator.parallelShift("USD", "OIS", curve, shifts);
+        for (int s = 0; s < shifts.length; s++){
+            //a parallel shift is exact under flat forward interpolation
+            DoubleArrayList dfs = new DoubleArrayList();
+            for (int i = 0; i < curve.times.size(); i++)
+                dfs.add(curve.dfs.getDouble(i) * Math.exp(-shifts[s] * curve.times.getDouble(i)));
+            DiscountCurve shifted = new DiscountCurve(valuationDate, curve.times.clone(), dfs, InterpolationType.FLAT_FORWARD_RATES);
+            double expected = 0.0;
+            for (LocalDate date : aggregator.getPaymentDates("USD", "OIS"))
+                expected += aggregator.getAmount("USD", "OIS", date) * shifted.df(date);
+            Assertions.assertEquals(expected, pvs[s], 1e-6);
+        }
+    }
+}
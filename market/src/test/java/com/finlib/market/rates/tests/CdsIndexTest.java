@@ -0,0 +1,89 @@
+package com.finlib.market.rates.tests;
+
+import com.finlib.finutils.*;
+import com.finlib.market.credit.CDS;
+import com.finlib.market.credit.CdsIndex;
+import com.finlib.market.credit.CdsQuoteConverter;
+import com.finlib.market.credit.CreditCurve;
+import com.finlib.market.rates.*;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+public class CdsIndexTest {
+
+    @Test
+    public void indexMatchesConstituentsAndSolvesBasis(){
+        LocalDate valuationDate = LocalDate.of(2018,6,6);
+        IborCurve liborCurve = CurveFixtures.liborCurve(valuationDate);
+        Map<String, CreditCurve> curves = new LinkedHashMap<>();
+        for (int k = 0; k < 12; k++)
+            curves.put("NAME" + k, CurveFixtures.creditCurve(valuationDate, liborCurve, 0.002 + 0.0015 * k));
+
+        CDS indexContract = CDS.of(valuationDate, DateUtils.nextCDSDate(DateUtils.addMonths(valuationDate, 60), Optional.empty()), 0.01);
+        ExecutorService executor = Executors.newFixedThreadPool(3);
+        try {
+            CdsIndex<String> index = new CdsIndex.Builder<String>(indexContract).addAll(curves.keySet())
+                    .withExecutor(executor).build();
+            Assertions.assertEquals(12, index.size());
+            Assertions.assertThrows(FinlibException.class, index::getIntrinsicUpfront);
+            index.valueAll(valuationDate, curves);
+
+            double average = 0.0;
+            for (Map.Entry<String, CreditCurve> name : curves.entrySet()){
+                double clean = indexContract.value(valuationDate, name.getValue(), true, Optional.of(0.4), Optional.empty())[1];
+                Assertions.assertEquals(clean / indexContract.getNotional(), index.getConstituentUpfront(name.getKey()), 1e-12);
+                average += clean / indexContract.getNotional() / curves.size();
+            }
+            Assertions.assertEquals(average, index.getIntrinsicUpfront(), 1e-12);
+            Assertions.assertTrue(index.getIntrinsicSpread() > 0.0);
+
+            //one constituent widens: the incremental update matches a full revaluation
+            curves.put("NAME3", curves.get("NAME3").bumped(0.002));
+            index.update("NAME3", curves.get("NAME3"));
+            CdsIndex<String> rebuilt = new CdsIndex.Builder<String>(indexContract).addAll(curves.keySet()).build();
+            rebuilt.valueAll(valuationDate, curves);
+            Assertions.assertEquals(rebuilt.getIntrinsicUpfront(), index.getIntrinsicUpfront(), 0.0);
+            Assertions.assertEquals(rebuilt.getIntrinsicSpread(), index.getIntrinsicSpread(), 0.0);
+
+            double intrinsic = index.getIntrinsicUpfront();
+            Assertions.assertEquals(0.0, index.basisAdjustment(intrinsic), 1e-10);
+            double wide = index.basisAdjustment(intrinsic + 0.01);
+            Assertions.assertTrue(wide > 0.0);
+            Assertions.assertEquals(intrinsic + 0.01, index.adjustedUpfront(wide), 1e-10);
+            double tight = index.basisAdjustment(intrinsic - 0.005);
+            Assertions.assertTrue(tight < 0.0);
+            Assertions.assertEquals(intrinsic - 0.005, index.adjustedUpfront(tight), 1e-10);
+            Assertions.assertEquals(tight, index.getBasisAdjustment(), 0.0);
+
+            double spread = index.getIntrinsicSpread();
+            Assertions.assertTrue(index.basisAdjustmentFromSpread(spread + 0.001) > index.basisAdjustmentFromSpread(spread));
+
+            //a spread quote is converted on the index contract's own schedule, not a standard one of the same maturity
+            CDS semiAnnual = CDS.of(valuationDate.plusDays(1), indexContract.getMaturityDate(), 0.01, 1_000_000, true,
+                    FrequencyType.SEMI_ANNUAL, DayCountType.ACT_365F, CalendarType.WEEKEND, DayAdjustType.FOLLOWING,
+                    DateGenRuleType.BACKWARD);
+            CdsIndex<String> semiAnnualIndex = new CdsIndex.Builder<String>(semiAnnual).addAll(curves.keySet()).build();
+            semiAnnualIndex.valueAll(valuationDate, curves);
+            CdsQuoteConverter converter = new CdsQuoteConverter.Builder(valuationDate, liborCurve).build();
+            double quoted = spread + 0.002;
+            double ownUpfront = converter.upfrontFromParSpread(semiAnnual, quoted);
+            double standardUpfront = converter.upfrontsFromParSpreads(new LocalDate[]{semiAnnual.getMaturityDate()},
+                    new double[]{quoted}, new double[]{semiAnnual.getCoupon()})[0];
+            Assertions.assertNotEquals(standardUpfront, ownUpfront, 1e-6);
+            Assertions.assertEquals(semiAnnualIndex.basisAdjustment(ownUpfront), semiAnnualIndex.basisAdjustmentFromSpread(quoted), 1e-12);
+            Assertions.assertEquals(0.0, converter.upfrontFromParSpread(semiAnnual, semiAnnual.getCoupon()), 1e-12);
+
+            Assertions.assertThrows(FinlibException.class, () -> index.update("OTHER", curves.get("NAME0")));
+            Assertions.assertThrows(FinlibException.class, () -> index.basisAdjustment(-1.0));
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package com.finlib.market.rates.tests;
+
+import com.finlib.finutils.*;
+import com.finlib.market.credit.CDS;
+import com.finlib.market.credit.CdsPortfolio;
+import com.finlib.market.credit.CreditCurve;
+import com.finlib.market.rates.*;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+public class CdsPortfolioTest {
+
+    @Test
+    public void bookMatchesSingleTrades(){
+        LocalDate valuationDate = LocalDate.of(2018,6,6);
+        IborCurve liborCurve = CurveFixtures.liborCurve(valuationDate);
+        Map<String, CreditCurve> curves = new HashMap<>();
+        for (int k = 0; k < 3; k++)
+            curves.put("ISSUER" + k, CurveFixtures.creditCurve(valuationDate, liborCurve, 0.003 + 0.002 * k));
+
+        //five standard maturities shared by every issuer, with different coupons, notionals and directions
+        String[] tenors = {"1Y", "2Y", "3Y", "5Y", "7Y"};
+        CdsPortfolio.Builder<String> builder = new CdsPortfolio.Builder<>();
+        List<CDS> trades = new ArrayList<>();
+        List<String> issuers = new ArrayList<>();
+        for (int i = 0; i < 60; i++){
+            CDS cds = CDS.of(valuationDate, tenors[i % tenors.length], i % 4 == 0 ? 0.01 : 0.05, 1_000_000 * (1 + i % 3),
+                    i % 2 == 0, FrequencyType.QUARTERLY, DayCountType.ACT_360, CalendarType.WEEKEND, DayAdjustType.FOLLOWING,
+                    DateGenRuleType.BACKWARD);
+            String issuer = "ISSUER" + (i % 3);
+            builder.add(issuer, cds);
+            trades.add(cds);
+            issuers.add(issuer);
+        }
+        CdsPortfolio<String> book = builder.build();
+        Assertions.assertEquals(60, book.size());
+        Assertions.assertEquals(5, book.getNumSchedules());
+
+        double[] pvs = book.valueAll(valuationDate, curves, true, Optional.of(0.4), Optional.empty());
+        for (int i = 0; i < trades.size(); i++){
+            double pv = trades.get(i).value(valuationDate, curves.get(issuers.get(i)), true, Optional.of(0.4), Optional.empty())[0];
+            Assertions.assertEquals(pv, pvs[i], 1e-8);
+        }
+
+        double[] stepped = book.valueAll(valuationDate, curves, true, Optional.of(0.3), Optional.of(40));
+        double pv = trades.get(7).value(valuationDate, curves.get(issuers.get(7)), true, Optional.of(0.3), Optional.of(40))[0];
+        Assertions.assertEquals(pv, stepped[7], 1e-8);
+
+        curves.remove("ISSUER1");
+        Assertions.assertThrows(FinlibException.class,
+                () -> book.valueAll(valuationDate, curves, true, Optional.of(0.4), Optional.empty()));
+    }
+}
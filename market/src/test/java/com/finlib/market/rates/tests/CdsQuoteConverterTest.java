@@ -0,0 +1,58 @@
+package com.finlib.market.rates.tests;
+
+import com.finlib.finutils.*;
+import com.finlib.market.credit.CDS;
+import com.finlib.market.credit.CdsQuoteConverter;
+import com.finlib.market.credit.CreditCurve;
+import com.finlib.market.rates.*;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+
+public class CdsQuoteConverterTest {
+
+    @Test
+    public void conversionsRoundTripAndMatchCurveBuild(){
+        LocalDate valuationDate = LocalDate.of(2018,6,6);
+        IborCurve liborCurve = CurveFixtures.liborCurve(valuationDate);
+        CdsQuoteConverter converter = new CdsQuoteConverter.Builder(valuationDate, liborCurve).withChunkSize(7).build();
+
+        int numQuotes = 50;
+        LocalDate[] maturities = new LocalDate[numQuotes];
+        double[] spreads = new double[numQuotes];
+        double[] coupons = new double[numQuotes];
+        for (int i = 0; i < numQuotes; i++){
+            maturities[i] = DateUtils.addMonths(valuationDate, 12 * (1 + i % 5));
+            spreads[i] = 0.002 + 0.0015 * i;
+            coupons[i] = i % 2 == 0 ? 0.01 : 0.05;
+        }
+        double[] hazards = converter.hazardRatesFromParSpreads(maturities, spreads);
+        Assertions.assertEquals(5, converter.getNumSchedules());
+        double[] back = converter.parSpreads(maturities, hazards);
+        double[] upfronts = converter.upfrontsFromParSpreads(maturities, spreads, coupons);
+        double[] fromUpfronts = converter.parSpreadsFromUpfronts(maturities, upfronts, coupons);
+        for (int i = 0; i < numQuotes; i++){
+            Assertions.assertEquals(spreads[i], back[i], 1e-12);
+            Assertions.assertEquals(spreads[i], fromUpfronts[i], 1e-10);
+        }
+
+        //a one contract curve has a flat hazard rate, so it must agree with the converter
+        for (int i = 0; i < numQuotes; i += 9){
+            CDS quote = CDS.of(valuationDate, maturities[i], spreads[i]);
+            CreditCurve curve = CreditCurve.of(valuationDate, liborCurve, List.of(quote));
+            double t = curve.getTimes().getDouble(1);
+            Assertions.assertEquals(-Math.log(curve.getSurvProbs().getDouble(1)) / t, hazards[i], 1e-6);
+            CDS standard = CDS.of(valuationDate, maturities[i], coupons[i]);
+            double cleanPV = standard.value(valuationDate, curve, true, Optional.of(0.4), Optional.empty())[1];
+            Assertions.assertEquals(cleanPV / standard.getNotional(), upfronts[i], 1e-6);
+        }
+
+        //no flat hazard rate reprices a negative spread
+        double[] invalid = converter.hazardRatesFromParSpreads(new LocalDate[]{maturities[0]}, new double[]{-0.01});
+        Assertions.assertTrue(Double.isNaN(invalid[0]));
+        Assertions.assertThrows(FinlibException.class, () -> converter.parSpreads(maturities, new double[3]));
+    }
+}
@@ -0,0 +1,76 @@
+package com.finlib.market.rates.tests;
+
+import com.finlib.finutils.*;
+import com.finlib.market.credit.CDS;
+import com.finlib.market.credit.CreditCurve;
+import com.finlib.market.credit.CreditCurveBatch;
+import com.finlib.market.credit.CreditCurveFactory;
+import com.finlib.market.rates.*;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+public class CreditCurveFactoryTest {
+
+    @Test
+    public void buildsIssuersAndReportsFailures(){
+        LocalDate valuationDate = LocalDate.of(2018,6,6);
+        IborCurve liborCurve = CurveFixtures.liborCurve(valuationDate);
+        Map<String, List<CDS>> issuers = new LinkedHashMap<>();
+        for (int k = 0; k < 6; k++)
+            issuers.put("ISSUER" + k, CurveFixtures.cdsContracts(valuationDate, 7, 0.002 + 0.003 * k, 0.001));
+        //a negative spread has no survival probability that prices it to par
+        List<CDS> broken = CurveFixtures.cdsContracts(valuationDate, 7, 0.002, 0.001);
+        broken.set(2, CDS.of(valuationDate, broken.get(2).getMaturityDate(), -0.01));
+        issuers.put("BROKEN", broken);
+        //contracts are validated whether or not assertions are enabled
+        List<CDS> misordered = CurveFixtures.cdsContracts(valuationDate, 7, 0.002, 0.001);
+        Collections.swap(misordered, 3, 4);
+        issuers.put("MISORDERED", misordered);
+        List<CDS> repeated = CurveFixtures.cdsContracts(valuationDate, 7, 0.002, 0.001);
+        repeated.set(4, CDS.of(valuationDate, repeated.get(3).getMaturityDate(), 0.007));
+        issuers.put("REPEATED", repeated);
+        issuers.put("EMPTY", new ArrayList<>());
+
+        CreditCurveBatch<String> batch = CreditCurveFactory.buildAll(valuationDate, liborCurve, issuers);
+        Assertions.assertEquals(6, batch.getCurves().size());
+        Assertions.assertEquals(List.of("BROKEN", "MISORDERED", "REPEATED", "EMPTY"), new ArrayList<>(batch.getFailures().keySet()));
+        for (String issuer : List.of("MISORDERED", "REPEATED", "EMPTY"))
+            Assertions.assertTrue(batch.getFailures().get(issuer) instanceof FinlibException);
+        Assertions.assertThrows(FinlibException.class, () -> CreditCurve.of(valuationDate, liborCurve, misordered));
+        Assertions.assertEquals(10, batch.getBuildNanos().size());
+        Assertions.assertTrue(batch.getBusyNanos() > 0);
+
+        int k = 0;
+        for (Map.Entry<String, CreditCurve> entry : batch.getCurves().entrySet()){
+            Assertions.assertEquals("ISSUER" + k++, entry.getKey());
+            CreditCurve single = CurveFixtures.creditCurve(valuationDate, liborCurve, 0.002 + 0.003 * (k - 1));
+            for (int i = 0; i < single.getSurvProbs().size(); i++)
+                Assertions.assertEquals(single.getSurvProbs().getDouble(i), entry.getValue().getSurvProbs().getDouble(i), 1e-12);
+        }
+    }
+
+    @Test
+    public void errorsFailTheBatch(){
+        LocalDate valuationDate = LocalDate.of(2018,6,6);
+        IborCurve liborCurve = CurveFixtures.liborCurve(valuationDate);
+        Map<String, List<CDS>> issuers = new LinkedHashMap<>(){
+            @Override
+            public List<CDS> get(Object key){
+                if ("FATAL".equals(key))
+                    throw new StackOverflowError();
+                return super.get(key);
+            }
+        };
+        for (int k = 0; k < 3; k++)
+            issuers.put("ISSUER" + k, CurveFixtures.cdsContracts(valuationDate, 7, 0.002 + 0.003 * k, 0.001));
+        issuers.put("FATAL", CurveFixtures.cdsContracts(valuationDate, 7, 0.002, 0.001));
+        Assertions.assertThrows(StackOverflowError.class, () -> CreditCurveFactory.buildAll(valuationDate, liborCurve, issuers));
+    }
+}
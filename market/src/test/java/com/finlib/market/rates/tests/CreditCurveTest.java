@@ -2,13 +2,19 @@ package com.finlib.market.rates.tests;
 
 import com.finlib.finutils.DateUtils;
 import com.finlib.finutils.DayCountType;
+import com.finlib.finutils.FinlibException;
 import com.finlib.finutils.FrequencyType;
 import com.finlib.market.credit.CDS;
 import com.finlib.market.credit.CreditCurve;
+import com.finlib.market.credit.HazardCurve;
 import com.finlib.market.rates.*;
 import com.finlib.shared.DiscountCurve;
 import com.finlib.shared.InterpolationType;
+import com.finlib.shared.Interpolator;
 import it.unimi.dsi.fastutil.doubles.DoubleArrayList;
+import org.apache.commons.math4.analysis.UnivariateFunction;
+import org.apache.commons.math4.analysis.solvers.AllowedSolution;
+import org.apache.commons.math4.analysis.solvers.BracketingNthOrderBrentSolver;
 import org.junit.jupiter.api.Test;
 
 import java.time.LocalDate;
@@ -16,6 +22,8 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
 
+import static org.junit.jupiter.api.Assertions.*;
+
 public class CreditCurveTest {
 
     @Test
@@ -53,4 +61,193 @@ public class CreditCurveTest {
 
 
     }
+
+    @Test
+    public void cachedGridMatchesAcrossCalls(){
+        LocalDate curveDate = LocalDate.of(2018,12,20);
+        IborCurve liborCurve = CurveFixtures.annualSwapCurve(curveDate, 0.05, 0.0);
+        List<CDS> cdsContracts = CurveFixtures.cdsContracts(curveDate, 5, 0.004, 0.001);
+        CreditCurve creditCurve = CreditCurve.of(curveDate, liborCurve, cdsContracts);
+
+        //bootstrapped contracts reprice to par through the grids cached during the bootstrap
+        for (CDS cds : cdsContracts)
+            assertEquals(0.0, cds.value(curveDate, creditCurve, true, Optional.empty(), Optional.empty())[0], 0.1);
+
+        CDS cds = CDS.of(curveDate, DateUtils.addMonths(curveDate, 42), 0.01);
+        double[] first = cds.value(curveDate, creditCurve, true, Optional.empty(), Optional.empty());
+        double coarse = cds.protectionLegPV(curveDate, creditCurve, true, Optional.empty(), Optional.of(10));
+        double fine = cds.protectionLegPV(curveDate, creditCurve, true, Optional.empty(), Optional.of(100));
+        assertEquals(fine, coarse, 1e-3 * fine);
+        double[] second = cds.value(curveDate, creditCurve, true, Optional.empty(), Optional.empty());
+        assertEquals(first[0], second[0], 0.0);
+        assertEquals(first[1], second[1], 0.0);
+
+        //alternating Libor curves each keep their own grid and agree with a contract that never saw the other curve
+        CreditCurve otherCurve = creditCurve.withLiborCurve(CurveFixtures.annualSwapCurve(curveDate, 0.04, 0.0));
+        CDS fresh = CDS.of(curveDate, DateUtils.addMonths(curveDate, 42), 0.01);
+        double[] other = fresh.value(curveDate, otherCurve, true, Optional.empty(), Optional.empty());
+        for (int i = 0; i < 3; i++){
+            assertEquals(other[0], cds.value(curveDate, otherCurve, true, Optional.empty(), Optional.empty())[0], 0.0);
+            assertEquals(first[0], cds.value(curveDate, creditCurve, true, Optional.empty(), Optional.empty())[0], 0.0);
+        }
+    }
+
+    @Test
+    public void segmentBootstrapRepricesEveryPillar(){
+        LocalDate curveDate = LocalDate.of(2018,12,20);
+        IborCurve liborCurve = CurveFixtures.annualSwapCurve(curveDate, 0.02, 0.003);
+        List<CDS> cdsContracts = CurveFixtures.cdsContracts(curveDate, 10, 0.004, 0.002);
+        CreditCurve creditCurve = CreditCurve.of(curveDate, liborCurve, cdsContracts);
+
+        //the bootstrap prices only the last segment of each contract; a full valuation must agree up to the solver accuracy
+        for (CDS cds : cdsContracts)
+            assertEquals(0.0, cds.value(curveDate, creditCurve, true, Optional.of(0.4), Optional.empty())[1], 1.0);
+        DoubleArrayList survProbs = creditCurve.getSurvProbs();
+        for (int i = 1; i < survProbs.size(); i++)
+            assertTrue(survProbs.getDouble(i) < survProbs.getDouble(i - 1));
+
+        /*The same bootstrap driven by the full CDS.value pricer. Pillar i is solved on a
+        curve of the first i + 1 contracts whose earlier pillars were solved the same way,
+        with the solver the bootstrap uses.*/
+        double[] fullSurvProbs = new double[cdsContracts.size()];
+        CreditCurve full = null;
+        for (int i = 0; i < cdsContracts.size(); i++){
+            CreditCurve base = CreditCurve.of(curveDate, liborCurve, cdsContracts.subList(0, i + 1));
+            for (int k = 0; k < i; k++)
+                base = base.withSurvivalProbability(k, fullSurvProbs[k]);
+            CDS cds = cdsContracts.get(i);
+            CreditCurve trial = base;
+            int pillar = i;
+            UnivariateFunction f = q -> cds.value(curveDate, trial.withSurvivalProbability(pillar, q), true, Optional.of(0.4),
+                    Optional.empty())[1];
+            fullSurvProbs[i] = new BracketingNthOrderBrentSolver(1e-14, 1e-12, 5).solve(100, f, 0.001, base.getSurvProbs().getDouble(i),
+                    AllowedSolution.ABOVE_SIDE);
+            full = base.withSurvivalProbability(i, fullSurvProbs[i]);
+        }
+        for (int i = 0; i < survProbs.size(); i++)
+            assertEquals(full.getSurvProbs().getDouble(i), survProbs.getDouble(i), 1e-12);
+    }
+
+    @Test
+    public void bumpedCurvesMatchFullRebuild(){
+        LocalDate curveDate = LocalDate.of(2018,12,20);
+        IborCurve liborCurve = CurveFixtures.annualSwapCurve(curveDate, 0.02, 0.003);
+        List<CDS> cdsContracts = CurveFixtures.cdsContracts(curveDate, 7, 0.004, 0.002);
+        CreditCurve creditCurve = CreditCurve.of(curveDate, liborCurve, cdsContracts);
+        double bump = 0.0001;
+
+        List<CDS> bumpedContracts = new ArrayList<>();
+        for (CDS cds : cdsContracts)
+            bumpedContracts.add(CDS.of(curveDate, cds.getMaturityDate(), cds.getCoupon() + bump));
+        CreditCurve rebuilt = CreditCurve.of(curveDate, liborCurve, bumpedContracts);
+        CreditCurve bumped = creditCurve.bumped(bump);
+        assertSame(liborCurve, bumped.getLiborCurve());
+        for (int i = 0; i < rebuilt.getSurvProbs().size(); i++)
+            assertEquals(rebuilt.getSurvProbs().getDouble(i), bumped.getSurvProbs().getDouble(i), 1e-12);
+        //the original contracts are left alone
+        assertEquals(0.006, cdsContracts.get(0).getCoupon(), 0.0);
+
+        int tenor = 3;
+        List<CDS> oneBumped = new ArrayList<>(cdsContracts);
+        oneBumped.set(tenor, CDS.of(curveDate, cdsContracts.get(tenor).getMaturityDate(), cdsContracts.get(tenor).getCoupon() + bump));
+        rebuilt = CreditCurve.of(curveDate, liborCurve, oneBumped);
+        bumped = creditCurve.bumpedAt(tenor, bump);
+        for (int i = 0; i <= tenor; i++)
+            assertEquals(creditCurve.getSurvProbs().getDouble(i), bumped.getSurvProbs().getDouble(i), 0.0);
+        for (int i = tenor + 1; i < rebuilt.getSurvProbs().size(); i++)
+            assertEquals(rebuilt.getSurvProbs().getDouble(i), bumped.getSurvProbs().getDouble(i), 1e-12);
+        assertTrue(bumped.getSolverEvaluations() < rebuilt.getSolverEvaluations());
+        assertThrows(FinlibException.class, () -> creditCurve.bumpedAt(cdsContracts.size(), bump));
+
+        //the warm-started bump gives the same DV01 as two cold builds
+        CDS cds = CDS.of(curveDate, DateUtils.addMonths(curveDate, 54), 0.01);
+        double creditDV01 = cds.creditDV01(curveDate, creditCurve, true, Optional.of(0.4), Optional.empty());
+        CreditCurve coldBumped = CreditCurve.of(curveDate, liborCurve, bumpedContracts);
+        double coldDV01 = cds.value(curveDate, coldBumped, true, Optional.of(0.4), Optional.empty())[0]
+                - cds.value(curveDate, creditCurve, true, Optional.of(0.4), Optional.empty())[0];
+        assertTrue(creditDV01 > 0.0);
+        assertEquals(coldDV01, creditDV01, 1e-6);
+    }
+
+    @Test
+    public void exactProtectionLegMatchesFineSteps(){
+        LocalDate curveDate = LocalDate.of(2018,12,20);
+        IborCurve liborCurve = CurveFixtures.annualSwapCurve(curveDate, 0.02, 0.003);
+        List<CDS> cdsContracts = CurveFixtures.cdsContracts(curveDate, 7, 0.001, 0.004);
+        CreditCurve creditCurve = CreditCurve.of(curveDate, liborCurve, cdsContracts);
+
+        CDS cds = CDS.of(curveDate, DateUtils.addMonths(curveDate, 66), 0.01);
+        double exact = cds.protectionLegPV(curveDate, creditCurve, true, Optional.of(0.4), Optional.empty());
+        double fine = cds.protectionLegPV(curveDate, creditCurve, true, Optional.of(0.4), Optional.of(20000));
+        double coarse = cds.protectionLegPV(curveDate, creditCurve, true, Optional.of(0.4), Optional.of(25));
+        //the fixed step integral carries a 1e-8 guard in its denominator
+        assertEquals(fine, exact, 1e-6 * exact);
+        assertTrue(Math.abs(coarse - exact) > Math.abs(fine - exact));
+        assertThrows(FinlibException.class,
+                () -> cds.protectionLegPV(curveDate, creditCurve, true, Optional.of(0.4), Optional.of(0)));
+    }
+
+    @Test
+    public void hazardCurveMatchesSurvivalProbabilities(){
+        LocalDate curveDate = LocalDate.of(2018,12,20);
+        IborCurve liborCurve = CurveFixtures.annualSwapCurve(curveDate, 0.03, 0.0);
+        List<CDS> cdsContracts = CurveFixtures.cdsContracts(curveDate, 7, 0.004, 0.002);
+        CreditCurve creditCurve = CreditCurve.of(curveDate, liborCurve, cdsContracts);
+
+        HazardCurve hazards = creditCurve.getHazardCurve();
+        DoubleArrayList times = creditCurve.getTimes();
+        DoubleArrayList survProbs = creditCurve.getSurvProbs();
+        assertEquals(times.size(), hazards.getNumNodes());
+        for (int i = 0; i < times.size(); i++){
+            assertEquals(times.getDouble(i), hazards.getTime(i), 0.0);
+            assertEquals(survProbs.getDouble(i), hazards.survival(times.getDouble(i)), 1e-15);
+        }
+
+        Interpolator interp = Interpolator.of(InterpolationType.FLAT_FORWARD_RATES, times, survProbs);
+        double[] t = new double[200];
+        for (int i = 0; i < t.length; i++)
+            t[i] = 0.05 * i;
+        double[] batch = hazards.survival(t);
+        for (int i = 0; i < t.length; i++){
+            assertEquals(interp.interpolate(t[i]), batch[i], 1e-14);
+            assertEquals(hazards.survival(t[i]), batch[i], 0.0);
+        }
+
+        for (int i = 1; i < times.size(); i++){
+            double h = -Math.log(survProbs.getDouble(i) / survProbs.getDouble(i - 1)) / (times.getDouble(i) - times.getDouble(i - 1));
+            double mid = 0.5 * (times.getDouble(i) + times.getDouble(i - 1));
+            assertEquals(h, hazards.hazard(mid), 1e-12);
+            assertEquals(h, hazards.hazard(times.getDouble(i)), 1e-12);
+        }
+        assertEquals(hazards.hazard(times.getDouble(times.size() - 1)), hazards.hazard(20.0), 0.0);
+    }
+
+    @Test
+    public void warmStartMatchesColdBuild(){
+        LocalDate curveDate = LocalDate.of(2018,12,20);
+        IborCurve liborCurve = CurveFixtures.annualSwapCurve(curveDate, 0.02, 0.003);
+        CreditCurve base = CreditCurve.of(curveDate, liborCurve, CurveFixtures.cdsContracts(curveDate, 7, 0.004, 0.002));
+        assertEquals(0, base.getSolverEvaluationsSaved());
+
+        List<CDS> moved = CurveFixtures.cdsContracts(curveDate, 7, 0.0041, 0.002);
+        CreditCurve cold = CreditCurve.of(curveDate, liborCurve, moved);
+        CreditCurve warm = CreditCurve.of(curveDate, liborCurve, moved, base);
+        for (int i = 0; i < cold.getSurvProbs().size(); i++)
+            assertEquals(cold.getSurvProbs().getDouble(i), warm.getSurvProbs().getDouble(i), 1e-10);
+        assertEquals(0, warm.getWarmStartFallbacks());
+        assertTrue(warm.getSolverEvaluations() < cold.getSolverEvaluations());
+        assertEquals(base.getSolverEvaluations() - warm.getSolverEvaluations(), warm.getSolverEvaluationsSaved());
+
+        //spreads three times wider put every pillar outside the 1% bracket around the prior
+        CreditCurve far = CreditCurve.of(curveDate, liborCurve, CurveFixtures.cdsContracts(curveDate, 7, 0.012, 0.006));
+        CreditCurve fallback = CreditCurve.of(curveDate, liborCurve, moved, far);
+        assertEquals(7, fallback.getWarmStartFallbacks());
+        for (int i = 0; i < cold.getSurvProbs().size(); i++)
+            assertEquals(cold.getSurvProbs().getDouble(i), fallback.getSurvProbs().getDouble(i), 1e-10);
+
+        //a tail rebuild is credited only with what the cold build spent on the pillars it solves again
+        CreditCurve tail = base.bumpedAt(5, 0.0001);
+        assertTrue(tail.getSolverEvaluationsSaved() < base.getSolverEvaluations() - tail.getSolverEvaluations());
+        assertTrue(tail.getSolverEvaluationsSaved() < base.getSolverEvaluations() / 2);
+    }
 }
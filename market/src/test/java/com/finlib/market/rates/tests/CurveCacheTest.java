@@ -0,0 +1,169 @@
+package com.finlib.market.rates.tests;
+
+import com.finlib.finutils.*;
+import com.finlib.market.CurveCache;
+import com.finlib.market.CurveKey;
+import com.finlib.market.rates.*;
+import com.finlib.shared.InterpolationType;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class CurveCacheTest {
+    private static final LocalDate VALUATION_DATE = LocalDate.of(2018,6,6);
+
+    private IborCurve.Builder builder(double depoRate, double fraRate, int futureNumber, double futurePrice,
+                                      double meanReversion, double volatility, double swapRate, boolean checkRefit){
+        return new IborCurve.Builder(VALUATION_DATE, InterpolationType.FLAT_FORWARD_RATES)
+                .withDeposits(List.of(IborDeposit.of(VALUATION_DATE, "3M", depoRate, DayCountType.ACT_360)))
+                .withFRAs(List.of(IborFRA.of(VALUATION_DATE.plusMonths(3), "3M", fraRate, DayCountType.ACT_360)))
+                .withFutures(List.of(IborFuture.of(VALUATION_DATE, futureNumber)), new double[]{futurePrice})
+                .withConvexity(meanReversion, volatility)
+                .withSwaps(List.of(IborSwap.of(VALUATION_DATE, "5Y", SwapType.PAY, swapRate, FrequencyType.SEMI_ANNUAL,
+                        DayCountType.THIRTY_E_360)))
+                .withCheckRefit(checkRefit);
+    }
+
+    private CurveKey key(String name){
+        return CurveKey.of(name);
+    }
+
+    @Test
+    public void keysCoverEveryBuilderInput(){
+        CurveKey base = builder(0.02, 0.021, 2, 97.8, 0.03, 0.01, 0.025, true).key();
+        Assertions.assertEquals(base, builder(0.02, 0.021, 2, 97.8, 0.03, 0.01, 0.025, true).key());
+        Assertions.assertEquals(base.hashCode(), builder(0.02, 0.021, 2, 97.8, 0.03, 0.01, 0.025, true).key().hashCode());
+
+        Assertions.assertNotEquals(base, builder(0.0201, 0.021, 2, 97.8, 0.03, 0.01, 0.025, true).key());
+        Assertions.assertNotEquals(base, builder(0.02, 0.0211, 2, 97.8, 0.03, 0.01, 0.025, true).key());
+        Assertions.assertNotEquals(base, builder(0.02, 0.021, 3, 97.8, 0.03, 0.01, 0.025, true).key());
+        Assertions.assertNotEquals(base, builder(0.02, 0.021, 2, 97.81, 0.03, 0.01, 0.025, true).key());
+        Assertions.assertNotEquals(base, builder(0.02, 0.021, 2, 97.8, 0.031, 0.01, 0.025, true).key());
+        Assertions.assertNotEquals(base, builder(0.02, 0.021, 2, 97.8, 0.03, 0.011, 0.025, true).key());
+        Assertions.assertNotEquals(base, builder(0.02, 0.021, 2, 97.8, 0.03, 0.01, 0.0251, true).key());
+        Assertions.assertNotEquals(base, builder(0.02, 0.021, 2, 97.8, 0.03, 0.01, 0.025, false).key());
+
+        //the key holds its own copy of the futures prices
+        double[] prices = {97.8};
+        IborCurve.Builder b = new IborCurve.Builder(VALUATION_DATE, InterpolationType.FLAT_FORWARD_RATES)
+                .withFutures(List.of(IborFuture.of(VALUATION_DATE, 1)), prices);
+        CurveKey before = b.key();
+        prices[0] = 97.9;
+        Assertions.assertNotEquals(before, b.key());
+    }
+
+    @Test
+    public void hitsEvictionsAndCounters() throws InterruptedException {
+        CurveCache<Object> cache = new CurveCache<>(2, Duration.ofDays(1));
+        Object a = cache.get(key("A"), Object::new);
+        Assertions.assertSame(a, cache.get(key("A"), Object::new));
+        Assertions.assertEquals(1, cache.getHits());
+        Assertions.assertEquals(1, cache.getMisses());
+
+        //A was used last, so B is the least recently used when C arrives
+        cache.get(key("B"), Object::new);
+        cache.get(key("A"), Object::new);
+        cache.get(key("C"), Object::new);
+        Assertions.assertEquals(2, cache.size());
+        Assertions.assertEquals(1, cache.getEvictions());
+        Assertions.assertTrue(cache.getIfPresent(key("B")).isEmpty());
+        Assertions.assertSame(a, cache.getIfPresent(key("A")).get());
+        Assertions.assertEquals(3, cache.getHits());
+        Assertions.assertEquals(4, cache.getMisses());
+
+        CurveCache<Object> aged = new CurveCache<>(10, Duration.ofMillis(1));
+        Object old = aged.get(key("A"), Object::new);
+        Thread.sleep(5);
+        Object rebuilt = aged.get(key("A"), Object::new);
+        Assertions.assertNotSame(old, rebuilt);
+        Assertions.assertEquals(1, aged.getEvictions());
+        Assertions.assertEquals(2, aged.getMisses());
+        Assertions.assertEquals(0, aged.getHits());
+    }
+
+    @Test
+    public void concurrentCallersShareOneBuild() throws Exception {
+        CurveCache<Object> cache = new CurveCache<>(4, Duration.ofDays(1));
+        AtomicInteger builds = new AtomicInteger();
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<Object> first = CompletableFuture.supplyAsync(() -> cache.get(key("A"), () -> {
+            builds.incrementAndGet();
+            started.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e){
+                throw new IllegalStateException(e);
+            }
+            return new Object();
+        }));
+        started.await();
+        CompletableFuture<Object> second = CompletableFuture.supplyAsync(() -> cache.get(key("A"), () -> {
+            builds.incrementAndGet();
+            return new Object();
+        }));
+        release.countDown();
+        Assertions.assertSame(first.get(), second.get());
+        Assertions.assertEquals(1, builds.get());
+        Assertions.assertEquals(1, cache.getHits());
+        Assertions.assertEquals(1, cache.getMisses());
+    }
+
+    @Test
+    public void buildLongerThanMaxAgeIsShared() throws Exception {
+        CurveCache<Object> cache = new CurveCache<>(4, Duration.ofMillis(1));
+        AtomicInteger builds = new AtomicInteger();
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<Object> first = CompletableFuture.supplyAsync(() -> cache.get(key("A"), () -> {
+            builds.incrementAndGet();
+            started.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e){
+                throw new IllegalStateException(e);
+            }
+            return new Object();
+        }));
+        started.await();
+        Thread.sleep(5);
+        Object[] second = new Object[1];
+        Thread waiter = new Thread(() -> second[0] = cache.get(key("A"), () -> {
+            builds.incrementAndGet();
+            return new Object();
+        }));
+        waiter.start();
+        //release the build only once the second caller is waiting on it
+        while (waiter.getState() != Thread.State.WAITING && waiter.isAlive())
+            Thread.sleep(1);
+        release.countDown();
+        waiter.join();
+        Assertions.assertSame(first.get(), second[0]);
+        Assertions.assertEquals(1, builds.get());
+        Assertions.assertEquals(0, cache.getEvictions());
+    }
+
+    @Test
+    public void failedBuildIsNotCached(){
+        CurveCache<Object> cache = new CurveCache<>(4, Duration.ofDays(1));
+        Assertions.assertThrows(FinlibException.class, () -> cache.get(key("A"), () -> {
+            throw new FinlibException("no fit");
+        }));
+        Assertions.assertEquals(0, cache.size());
+        //an Error must not leave an unfinished entry behind for later callers to wait on
+        Assertions.assertThrows(AssertionError.class, () -> cache.get(key("A"), () -> {
+            throw new AssertionError("bad contracts");
+        }));
+        Assertions.assertEquals(0, cache.size());
+        Object curve = cache.get(key("A"), Object::new);
+        Assertions.assertSame(curve, cache.get(key("A"), Object::new));
+        Assertions.assertEquals(3, cache.getMisses());
+        Assertions.assertEquals(1, cache.getHits());
+    }
+}
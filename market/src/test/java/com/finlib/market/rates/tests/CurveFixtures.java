@@ -0,0 +1,73 @@
+package com.finlib.market.rates.tests;
+
+import com.finlib.finutils.*;
+import com.finlib.market.credit.CDS;
+import com.finlib.market.credit.CreditCurve;
+import com.finlib.market.rates.*;
+import com.finlib.shared.InterpolationType;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+//Market data shared by the rates and credit tests
+final class CurveFixtures {
+    static final String[] SWAP_TENORS = {"2Y", "3Y", "5Y", "7Y", "10Y", "15Y", "20Y", "30Y"};
+    static final double[] SWAP_RATES = {0.0277, 0.0286, 0.0293, 0.0295, 0.0300, 0.0304, 0.0304, 0.0301};
+
+    private CurveFixtures(){}
+
+    //6M deposit and 2Y to 30Y semi-annual swaps with every quote moved by shift
+    static IborCurve.Builder liborBuilder(LocalDate valuationDate, double shift){
+        List<IborDeposit> depos = new ArrayList<>();
+        depos.add(IborDeposit.of(valuationDate, "6M", 0.0231 + shift, DayCountType.ACT_360));
+        List<IborSwap> swaps = new ArrayList<>();
+        for (int i = 0; i < SWAP_TENORS.length; i++)
+            swaps.add(IborSwap.of(valuationDate, SWAP_TENORS[i], SwapType.PAY, SWAP_RATES[i] + shift, FrequencyType.SEMI_ANNUAL,
+                    DayCountType.THIRTY_E_360));
+        return new IborCurve.Builder(valuationDate, InterpolationType.FLAT_FORWARD_RATES).withDeposits(depos).withSwaps(swaps);
+    }
+
+    static IborCurve liborCurve(LocalDate valuationDate){
+        return liborCurve(valuationDate, 0.0);
+    }
+
+    static IborCurve liborCurve(LocalDate valuationDate, double shift){
+        return liborBuilder(valuationDate, shift).build();
+    }
+
+    //The same curve with only the swap at bumpedPillar moved by bump
+    static IborCurve liborCurve(LocalDate valuationDate, int bumpedPillar, double bump){
+        List<IborDeposit> depos = new ArrayList<>();
+        depos.add(IborDeposit.of(valuationDate, "6M", 0.0231, DayCountType.ACT_360));
+        List<IborSwap> swaps = new ArrayList<>();
+        for (int i = 0; i < SWAP_TENORS.length; i++)
+            swaps.add(IborSwap.of(valuationDate, SWAP_TENORS[i], SwapType.PAY, SWAP_RATES[i] + (i == bumpedPillar ? bump : 0.0),
+                    FrequencyType.SEMI_ANNUAL, DayCountType.THIRTY_E_360));
+        return new IborCurve(valuationDate, Optional.empty(), depos, new ArrayList<>(), swaps, InterpolationType.FLAT_FORWARD_RATES, true);
+    }
+
+    //Swaps maturing every year from 1Y to 10Y, quoted at level + step * years, with no deposits
+    static IborCurve annualSwapCurve(LocalDate valuationDate, double level, double step){
+        List<IborSwap> swaps = new ArrayList<>();
+        for (int i = 1; i < 11; i++)
+            swaps.add(IborSwap.of(valuationDate, DateUtils.addMonths(valuationDate, 12*i), SwapType.PAY, level + step * i,
+                    FrequencyType.SEMI_ANNUAL, DayCountType.ACT_365F));
+        return new IborCurve(valuationDate, Optional.empty(), new ArrayList<>(), new ArrayList<>(), swaps,
+                InterpolationType.FLAT_FORWARD_RATES, true);
+    }
+
+    //CDS maturing every year from 1Y with coupon level + step * years
+    static List<CDS> cdsContracts(LocalDate valuationDate, int numContracts, double level, double step){
+        List<CDS> contracts = new ArrayList<>();
+        for (int i = 1; i <= numContracts; i++)
+            contracts.add(CDS.of(valuationDate, DateUtils.addMonths(valuationDate, 12 * i), level + step * i));
+        return contracts;
+    }
+
+    //Issuer curve on seven annual CDS with spreads from level + 10bp rising 10bp a year
+    static CreditCurve creditCurve(LocalDate valuationDate, IborCurve liborCurve, double level){
+        return CreditCurve.of(valuationDate, liborCurve, cdsContracts(valuationDate, 7, level, 0.001));
+    }
+}
@@ -0,0 +1,119 @@
+package com.finlib.market.rates.tests;
+
+import com.finlib.finutils.*;
+import com.finlib.market.rates.*;
+import com.finlib.shared.CachedDiscountCurve;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+
+public class FloatLegTest {
+
+    private FloatLeg leg(LocalDate startDate, String tenor, double spread, boolean exact){
+        return new FloatLeg.Builder(startDate, tenor, SwapType.RECEIVE, spread, FrequencyType.QUARTERLY, DayCountType.ACT_360)
+                .withNotional(10_000_000)
+                .withExactArithmetic(exact)
+                .build();
+    }
+
+    @Test
+    public void exactAndDoublePathsMatch(){
+        LocalDate valuationDate = LocalDate.of(2018,6,6);
+        IborCurve curve = CurveFixtures.liborCurve(valuationDate);
+        String[] tenors = {"1Y", "5Y", "10Y", "30Y"};
+        for (String tenor : tenors){
+            for (double spread : new double[]{0.0, 0.0025}){
+                FloatLeg exact = leg(valuationDate, tenor, spread, true);
+                FloatLeg fast = leg(valuationDate, tenor, spread, false);
+                double v1 = exact.value(valuationDate, curve, curve, Optional.empty()) / 10_000_000;
+                double v2 = fast.value(valuationDate, curve, curve, Optional.empty()) / 10_000_000;
+                Assertions.assertEquals(v1, v2, 1e-10);
+
+                LocalDate laterDate = valuationDate.plusMonths(7);
+                v1 = exact.value(laterDate, curve, curve, Optional.of(0.025)) / 10_000_000;
+                v2 = fast.value(laterDate, curve, curve, Optional.of(0.025)) / 10_000_000;
+                Assertions.assertEquals(v1, v2, 1e-10);
+            }
+        }
+    }
+
+    @Test
+    public void cashflowReportMatchesValue(){
+        LocalDate valuationDate = LocalDate.of(2018,6,6);
+        IborCurve curve = CurveFixtures.liborCurve(valuationDate);
+        IborSwap swap = IborSwap.of(valuationDate, "10Y", SwapType.PAY, 0.03, FrequencyType.SEMI_ANNUAL, DayCountType.THIRTY_E_360);
+        LocalDate laterDate = valuationDate.plusMonths(7);
+        List<CashflowReport> reports = swap.cashflowReport(laterDate, curve, Optional.empty(), Optional.of(0.025));
+        Assertions.assertEquals(2, reports.size());
+        CashflowReport fixed = reports.get(0);
+        CashflowReport floating = reports.get(1);
+        Assertions.assertEquals(swap.getFixedLeg().value(laterDate, curve), fixed.getLegPV(), 1e-6);
+        Assertions.assertEquals(swap.getFloatLeg().value(laterDate, curve, curve, Optional.of(0.025)), floating.getLegPV(), 1e-6);
+        Assertions.assertEquals(swap.value(laterDate, curve, Optional.empty(), Optional.of(0.025)),
+                fixed.getLegPV() + floating.getLegPV(), 1e-6);
+        int n = floating.getPaymentDates().size();
+        Assertions.assertEquals(Math.abs(floating.getLegPV()), floating.getCumulativePVs().getDouble(n - 1), 1e-6);
+        Assertions.assertEquals(0.0, floating.getPaymentPVs().getDouble(0));
+    }
+
+    @Test
+    public void timeGridFollowsCurveDate(){
+        LocalDate valuationDate = LocalDate.of(2018,6,6);
+        LocalDate nextDate = valuationDate.plusDays(1);
+        IborCurve curve = CurveFixtures.liborCurve(valuationDate);
+        IborCurve nextCurve = CurveFixtures.liborCurve(nextDate);
+        FloatLeg leg = leg(valuationDate, "10Y", 0.001, false);
+        double v1 = leg.value(nextDate, curve, curve, Optional.empty());
+        double v2 = leg.value(nextDate, curve, nextCurve, Optional.empty());
+        double v3 = leg.value(nextDate, nextCurve, nextCurve, Optional.empty());
+        Assertions.assertEquals(leg(valuationDate, "10Y", 0.001, false).value(nextDate, curve, curve, Optional.empty()), v1);
+        Assertions.assertEquals(leg(valuationDate, "10Y", 0.001, false).value(nextDate, curve, nextCurve, Optional.empty()), v2);
+        Assertions.assertEquals(leg(valuationDate, "10Y", 0.001, false).value(nextDate, nextCurve, nextCurve, Optional.empty()), v3);
+        Assertions.assertEquals(v1, leg.value(nextDate, curve, curve, Optional.empty()));
+        Assertions.assertNotEquals(v1, v3);
+    }
+
+    @Test
+    public void cachedCurveMatchesTimePath(){
+        LocalDate valuationDate = LocalDate.of(2018,6,6);
+        IborCurve curve = CurveFixtures.liborCurve(valuationDate);
+        CachedDiscountCurve cached = CachedDiscountCurve.of(curve);
+        FloatLeg leg = leg(valuationDate, "10Y", 0.001, false);
+        double expected = leg.value(valuationDate, curve, curve, Optional.empty());
+        //the second pass reads every discount factor back from the cache
+        Assertions.assertEquals(expected, leg.value(valuationDate, curve, cached, Optional.empty()));
+        Assertions.assertEquals(expected, leg.value(valuationDate, curve, cached, Optional.empty()));
+        LocalDate date = valuationDate.plusDays(400);
+        Assertions.assertEquals(curve.df(date), cached.df(cached.yearFrac(date)));
+        Assertions.assertEquals(curve.df(date), cached.df(date));
+        Assertions.assertEquals(curve.df(1.2345), cached.df(1.2345));
+    }
+
+    @Test
+    @Tag("benchmark")
+    public void benchmarkDoublePath(){
+        LocalDate valuationDate = LocalDate.of(2018,6,6);
+        IborCurve curve = CurveFixtures.liborCurve(valuationDate);
+        FloatLeg exact = leg(valuationDate, "30Y", 0.0, true);
+        FloatLeg fast = leg(valuationDate, "30Y", 0.0, false);
+        int warmup = 200, runs = 1000;
+        double sink = 0.0;
+        for (int i = 0; i < warmup; i++) {
+            sink += exact.value(valuationDate, curve, curve, Optional.empty());
+            sink += fast.value(valuationDate, curve, curve, Optional.empty());
+        }
+        long t0 = System.nanoTime();
+        for (int i = 0; i < runs; i++)
+            sink += exact.value(valuationDate, curve, curve, Optional.empty());
+        long t1 = System.nanoTime();
+        for (int i = 0; i < runs; i++)
+            sink += fast.value(valuationDate, curve, curve, Optional.empty());
+        long t2 = System.nanoTime();
+        System.out.println("30Y float leg BigDecimal: " + (t1 - t0) / runs / 1000.0 + " us, double: "
+                + (t2 - t1) / runs / 1000.0 + " us (" + sink + ")");
+    }
+}
@@ -0,0 +1,45 @@
+package com.finlib.market.rates.tests;
+
+import com.finlib.finutils.*;
+import com.finlib.market.rates.*;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+public class HorizonEngineTest {
+
+    @Test
+    public void matchesValuationOnEachDate(){
+        LocalDate valuationDate = LocalDate.of(2018,6,6);
+        IborCurve curve = CurveFixtures.liborCurve(valuationDate, 0.0);
+        IborCurve discount = CurveFixtures.liborCurve(valuationDate, -0.002);
+        List<LocalDate> horizon = new ArrayList<>();
+        for (int m = 0; m <= 72; m++)
+            horizon.add(valuationDate.plusMonths(m).plusDays(m % 3));
+        HorizonEngine engine = HorizonEngine.of(horizon);
+
+        List<IborSwap> swaps = List.of(
+                IborSwap.of(valuationDate.minusMonths(4), "5Y", SwapType.PAY, 0.029, FrequencyType.SEMI_ANNUAL, DayCountType.THIRTY_E_360),
+                IborSwap.of(valuationDate.plusMonths(6), "2Y", SwapType.RECEIVE, 0.027, FrequencyType.ANNUAL, DayCountType.ACT_360));
+        double[][] single = engine.value(swaps, curve, Optional.empty());
+        double[][] dual = engine.value(swaps, curve, Optional.of(discount));
+        for (int n = 0; n < swaps.size(); n++){
+            for (int k = 0; k < horizon.size(); k++){
+                LocalDate date = horizon.get(k);
+                Assertions.assertEquals(swaps.get(n).value(date, curve, Optional.empty(), Optional.empty()), single[n][k], 1e-6);
+                Assertions.assertEquals(swaps.get(n).value(date, curve, Optional.of(discount), Optional.empty()), dual[n][k], 1e-6);
+            }
+        }
+        Assertions.assertEquals(0.0, single[0][72]);
+    }
+
+    @Test
+    public void datesMustIncrease(){
+        LocalDate date = LocalDate.of(2018,6,6);
+        Assertions.assertThrows(FinlibException.class, () -> HorizonEngine.of(List.of(date, date)));
+    }
+}
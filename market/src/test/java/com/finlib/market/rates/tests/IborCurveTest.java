@@ -214,4 +214,167 @@ public class IborCurveTest {
         Assertions.assertEquals(-0.0139905820518, swapRate, 1e-4);
 
     }
+
+    @Test
+    public void MultiCurveBuilderTest(){
+        LocalDate valuationDate = LocalDate.of(2018, 11, 30);
+        LocalDate settlementDate = valuationDate;
+        InterpolationType interpType = InterpolationType.FLAT_FORWARD_RATES;
+        DayCountType fixedDCCType = DayCountType.ACT_365F;
+        FrequencyType fixedFreqType = FrequencyType.ANNUAL;
+        SwapType fixedLegType = SwapType.PAY;
+
+        List<IborDeposit> oisdepos = new ArrayList<>();
+        oisdepos.add(IborDeposit.of(settlementDate, "1D", -0.3490/100.0, DayCountType.ACT_360));
+        List<IborSwap> ois = new ArrayList<>();
+        ois.add(IborSwap.ofOIS(settlementDate, "1Y", fixedLegType, -0.3496/100.0, fixedFreqType, fixedDCCType));
+        ois.add(IborSwap.ofOIS(settlementDate, "2Y", fixedLegType, -0.2671/100.0, fixedFreqType, fixedDCCType));
+        ois.add(IborSwap.ofOIS(settlementDate, "5Y", fixedLegType, 0.1285/100.0, fixedFreqType, fixedDCCType));
+        ois.add(IborSwap.ofOIS(settlementDate, "10Y", fixedLegType, 0.7160/100.0, fixedFreqType, fixedDCCType));
+
+        List<IborDeposit> depos = new ArrayList<>();
+        depos.add(IborDeposit.of(settlementDate, "6M", -0.2510/100.0, DayCountType.ACT_360));
+        List<IborFRA> fras = new ArrayList<>();
+        List<IborSwap> swaps = new ArrayList<>();
+        swaps.add(IborSwap.of(settlementDate, "2Y", fixedLegType, -0.1525/100.0, fixedFreqType, DayCountType.THIRTY_360_BOND));
+        swaps.add(IborSwap.of(settlementDate, "5Y", fixedLegType, 0.2745/100.0, fixedFreqType, DayCountType.THIRTY_360_BOND));
+        swaps.add(IborSwap.of(settlementDate, "10Y", fixedLegType, 0.8799/100.0, fixedFreqType, DayCountType.THIRTY_360_BOND));
+
+        CurveSet curves = new MultiCurveBuilder(valuationDate, interpType)
+                .withOISDeposits(oisdepos)
+                .withOISSwaps(ois)
+                .withProjectionCurve("EURIBOR6M", depos, fras, swaps)
+                .build();
+
+        IborCurve oisCurve = new IborCurve(valuationDate, Optional.empty(), new ArrayList<>(oisdepos), new ArrayList<>(), new ArrayList<>(ois), interpType, true);
+        IborCurve dualCurve = new IborCurve(valuationDate, Optional.of(oisCurve), new ArrayList<>(depos), new ArrayList<>(fras), new ArrayList<>(swaps), interpType, true);
+
+        IborCurve projectionCurve = curves.getProjectionCurve("EURIBOR6M");
+        Assertions.assertEquals(dualCurve.getTimes().size(), projectionCurve.getTimes().size());
+        for (int i = 0; i < dualCurve.getTimes().size(); i++){
+            Assertions.assertEquals(dualCurve.getDiscFactors().getDouble(i), projectionCurve.getDiscFactors().getDouble(i), 1e-12);
+        }
+        Assertions.assertEquals(oisCurve.df(5.0), curves.getDiscountCurve().df(5.0), 1e-12);
+    }
+
+    @Test
+    public void FuturesStripTest(){
+        LocalDate valuationDate = LocalDate.of(2018,6,6);
+        List<IborDeposit> depos = new ArrayList<>();
+        depos.add(IborDeposit.of(valuationDate, DateUtils.nextIMMDate(valuationDate), 0.0231381, DayCountType.ACT_360));
+
+        List<IborFuture> futures = new ArrayList<>();
+        for (int i = 1; i <= 6; i++)
+            futures.add(IborFuture.of(valuationDate, i));
+        double[] prices = {97.6675, 97.5200, 97.3550, 97.2450, 97.1450, 97.0750};
+
+        LocalDate settlementDate = DateUtils.addWeekDays(valuationDate,2);
+        List<IborSwap> swaps = new ArrayList<>();
+        swaps.add(IborSwap.of(settlementDate, "2Y", SwapType.PAY, (2.77417+2.77844)/200, FrequencyType.SEMI_ANNUAL, DayCountType.THIRTY_E_360));
+        swaps.add(IborSwap.of(settlementDate, "5Y", SwapType.PAY, (2.92944+2.92906)/200, FrequencyType.SEMI_ANNUAL, DayCountType.THIRTY_E_360));
+
+        double a = 0.03, sigma = 0.01;
+        IborCurve curve = new IborCurve.Builder(valuationDate, InterpolationType.FLAT_FORWARD_RATES)
+                .withDeposits(depos).withFutures(futures, prices).withConvexity(a, sigma).withSwaps(swaps).build();
+
+        double[] convexity = IborFuture.convexityAdjustments(valuationDate, futures, a, sigma);
+        for (int i = 0; i < futures.size(); i++){
+            IborFRA fra = futures.get(i).toFRA(prices[i], 0.0);
+            double fwd = (curve.df(fra.getStartDate()) / curve.df(fra.getMaturityDate()) - 1.0)
+                    / new DayCount(DayCountType.ACT_360).yearFrac(fra.getStartDate(), fra.getMaturityDate());
+            Assertions.assertEquals(IborFuture.futuresRate(prices[i]) - convexity[i], fwd, 1e-12);
+        }
+
+        //Ho-Lee limit for a vanishing mean reversion
+        double[] hoLee = IborFuture.convexityAdjustments(valuationDate, futures, 1e-6, sigma);
+        double[] zeroReversion = IborFuture.convexityAdjustments(valuationDate, futures, 0.0, sigma);
+        for (int i = 0; i < futures.size(); i++)
+            Assertions.assertEquals(zeroReversion[i], hoLee[i], 1e-9);
+
+        /*Independent values for the sixth future, delivering 18 Sep 2019 on a period
+        ending 18 Dec 2019: t1 = 469/365 and t2 = 560/365. Ho-Lee gives
+        0.5 * 0.01^2 * t1 * t2 = 9.857008819665977e-05, and Hull-White with a = 3%
+        evaluated by hand gives 9.44452232991131e-05, below the Ho-Lee value.*/
+        Assertions.assertEquals(LocalDate.of(2019,9,18), futures.get(5).getDeliveryDate());
+        Assertions.assertEquals(LocalDate.of(2019,12,18), futures.get(5).getEndOfInterestPeriod());
+        Assertions.assertEquals(0.5 * sigma * sigma * (469 / 365.0) * (560 / 365.0), zeroReversion[5], 1e-18);
+        Assertions.assertEquals(9.857008819665977e-05, zeroReversion[5], 1e-15);
+        Assertions.assertEquals(9.44452232991131e-05, convexity[5], 1e-15);
+        for (int i = 0; i < futures.size(); i++)
+            Assertions.assertTrue(convexity[i] < zeroReversion[i]);
+    }
+
+    @Test
+    public void ParSwapRateGridTest(){
+        LocalDate valuationDate = LocalDate.of(2018, 6, 6);
+        List<IborDeposit> depos = new ArrayList<>();
+        depos.add(IborDeposit.of(valuationDate, "6M", 0.0231, DayCountType.ACT_360));
+        List<IborSwap> swaps = new ArrayList<>();
+        String[] pillars = {"2Y", "3Y", "5Y", "7Y", "10Y", "15Y", "20Y", "30Y"};
+        double[] rates = {0.0277, 0.0286, 0.0293, 0.0295, 0.0300, 0.0304, 0.0304, 0.0301};
+        for (int i = 0; i < pillars.length; i++)
+            swaps.add(IborSwap.of(valuationDate, pillars[i], SwapType.PAY, rates[i], FrequencyType.SEMI_ANNUAL, DayCountType.THIRTY_E_360));
+        IborCurve curve = new IborCurve(valuationDate, Optional.empty(), depos, new ArrayList<>(), swaps, InterpolationType.FLAT_FORWARD_RATES, true);
+
+        //the 31st and the 7M/18M tenors are off the shared schedule and take the fallback
+        List<LocalDate> startDates = List.of(valuationDate, valuationDate.plusMonths(3), LocalDate.of(2019, 1, 31), LocalDate.of(2020, 2, 29));
+        List<String> tenors = List.of("1Y", "7M", "18M", "2Y", "5Y", "10Y", "30Y");
+        for (FrequencyType freq : new FrequencyType[]{FrequencyType.SEMI_ANNUAL, FrequencyType.ANNUAL}){
+            double[][] grid = curve.parSwapRates(startDates, tenors, freq, DayCountType.THIRTY_E_360);
+            for (int s = 0; s < startDates.size(); s++){
+                for (int k = 0; k < tenors.size(); k++){
+                    LocalDate start = startDates.get(s);
+                    double expected = curve.swapRate(start, DateUtils.addTenor(start, tenors.get(k)), freq, DayCountType.THIRTY_E_360);
+                    Assertions.assertEquals(expected, grid[s][k], 1e-14);
+                }
+            }
+        }
+        Assertions.assertThrows(RuntimeException.class,
+                () -> curve.parSwapRates(List.of(valuationDate.minusDays(1)), tenors, FrequencyType.ANNUAL, DayCountType.ACT_360));
+    }
+
+    @Test
+    public void WarmStartTest(){
+        LocalDate valuationDate = LocalDate.of(2018, 6, 6);
+        IborCurve base = CurveFixtures.liborBuilder(valuationDate, 0.0).build();
+        Assertions.assertEquals(0, base.getSolverEvaluationsSaved());
+
+        IborCurve cold = CurveFixtures.liborBuilder(valuationDate, 0.0002).build();
+        IborCurve warm = CurveFixtures.liborBuilder(valuationDate, 0.0002).withPriorCurve(base).build();
+        Assertions.assertEquals(cold.getDiscFactors().size(), warm.getDiscFactors().size());
+        for (int i = 0; i < cold.getDiscFactors().size(); i++)
+            Assertions.assertEquals(cold.getDiscFactors().getDouble(i), warm.getDiscFactors().getDouble(i), 1e-12);
+        Assertions.assertEquals(0, warm.getWarmStartFallbacks());
+        Assertions.assertTrue(warm.getSolverEvaluations() < cold.getSolverEvaluations());
+        Assertions.assertEquals(base.getSolverEvaluations() - warm.getSolverEvaluations(), warm.getSolverEvaluationsSaved());
+
+        //a prior 3% away with a narrow bracket cannot bracket the root, every swap pillar falls back
+        IborCurve far = CurveFixtures.liborBuilder(valuationDate, 0.03).build();
+        IborCurve fallback = CurveFixtures.liborBuilder(valuationDate, 0.0002).withPriorCurve(far, 0.001).build();
+        Assertions.assertEquals(8, fallback.getWarmStartFallbacks());
+        for (int i = 0; i < cold.getDiscFactors().size(); i++)
+            Assertions.assertEquals(cold.getDiscFactors().getDouble(i), fallback.getDiscFactors().getDouble(i), 1e-12);
+    }
+
+    @Test
+    public void CheckRefitTest(){
+        LocalDate valuationDate = LocalDate.of(2018, 6, 6);
+        //two deposits quoted at different rates to the same date cannot both be repriced
+        List<IborDeposit> depos = new ArrayList<>();
+        depos.add(IborDeposit.of(valuationDate, "6M", 0.0231, DayCountType.ACT_360));
+        depos.add(IborDeposit.of(valuationDate, "6M", 0.0251, DayCountType.ACT_360));
+        List<IborSwap> swaps = new ArrayList<>();
+        swaps.add(IborSwap.of(valuationDate, "2Y", SwapType.PAY, 0.0277, FrequencyType.SEMI_ANNUAL, DayCountType.THIRTY_E_360));
+        swaps.add(IborSwap.of(valuationDate, "5Y", SwapType.PAY, 0.0293, FrequencyType.SEMI_ANNUAL, DayCountType.THIRTY_E_360));
+        Assertions.assertThrows(FinlibException.class, () -> new IborCurve(valuationDate, Optional.empty(), depos,
+                new ArrayList<>(), swaps, InterpolationType.FLAT_FORWARD_RATES, true));
+        IborCurve curve = new IborCurve(valuationDate, Optional.empty(), depos, new ArrayList<>(), swaps,
+                InterpolationType.FLAT_FORWARD_RATES, false);
+
+        //the solved DFs are pinned on the curve, so each swap reprices without the refit check
+        for (IborSwap swap : swaps){
+            double v = swap.value(swap.getEffectiveDate(), curve, Optional.empty(), Optional.empty());
+            Assertions.assertEquals(0.0, v / swap.getFixedLeg().getNotional(), 1e-10);
+        }
+    }
 }
@@ -0,0 +1,66 @@
+package com.finlib.market.rates.tests;
+
+import com.finlib.finutils.*;
+import com.finlib.market.credit.CDS;
+import com.finlib.market.credit.CreditCurve;
+import com.finlib.market.credit.InterestDV01;
+import com.finlib.market.rates.*;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+public class InterestDV01Test {
+
+    @Test
+    public void batchMatchesSingleTrade(){
+        LocalDate valuationDate = LocalDate.of(2018,6,6);
+        IborCurve liborCurve = CurveFixtures.liborCurve(valuationDate, 0.0);
+        List<CreditCurve> issuers = new ArrayList<>();
+        for (int k = 0; k < 4; k++)
+            issuers.add(CurveFixtures.creditCurve(valuationDate, liborCurve, 0.003 + 0.002 * k));
+
+        List<CDS> trades = new ArrayList<>();
+        List<CreditCurve> curves = new ArrayList<>();
+        for (int i = 0; i < 20; i++){
+            trades.add(CDS.of(valuationDate, DateUtils.addMonths(valuationDate, 18 + 6 * i % 60), 0.01));
+            curves.add(issuers.get(i % issuers.size()));
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(3);
+        try {
+            InterestDV01 calculator = new InterestDV01.Builder(liborCurve).withExecutor(executor).build();
+            double[] dv01 = calculator.value(valuationDate, trades, curves, true, Optional.of(0.4), Optional.empty());
+            for (int i = 0; i < trades.size(); i++){
+                double single = trades.get(i).interestDV01(valuationDate, curves.get(i), true, Optional.of(0.4), Optional.empty());
+                Assertions.assertEquals(single, dv01[i], 1e-6);
+                Assertions.assertNotEquals(0.0, dv01[i]);
+            }
+
+            //every DV01 matches a cold bootstrap of the issuer on the bumped Libor curve
+            for (int i = 0; i < trades.size(); i++){
+                int k = i % issuers.size();
+                CreditCurve coldBumped = CreditCurve.of(valuationDate, calculator.getBumpedLiborCurve(),
+                        CurveFixtures.cdsContracts(valuationDate, 7, 0.003 + 0.002 * k, 0.001));
+                double cold = trades.get(i).value(valuationDate, coldBumped, true, Optional.of(0.4), Optional.empty())[0]
+                        - trades.get(i).value(valuationDate, curves.get(i), true, Optional.of(0.4), Optional.empty())[0];
+                Assertions.assertEquals(cold, dv01[i], 1e-6);
+            }
+
+            List<CreditCurve> bumped = calculator.bumpedCurves(issuers);
+            Assertions.assertEquals(issuers.size(), bumped.size());
+            for (CreditCurve curve : bumped)
+                Assertions.assertSame(calculator.getBumpedLiborCurve(), curve.getLiborCurve());
+
+            CreditCurve other = CurveFixtures.creditCurve(valuationDate, CurveFixtures.liborCurve(valuationDate, 0.001), 0.004);
+            Assertions.assertThrows(FinlibException.class, () -> calculator.bumpedCurves(List.of(issuers.get(0), other)));
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package com.finlib.market.rates.tests;
+
+import com.finlib.finutils.*;
+import com.finlib.market.credit.CDS;
+import com.finlib.market.credit.CreditCurve;
+import com.finlib.market.portfolio.PortfolioPricer;
+import com.finlib.market.portfolio.PortfolioResult;
+import com.finlib.market.rates.*;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+public class PortfolioPricerTest {
+
+    private List<IborSwap> book(LocalDate valuationDate, int size){
+        String[] tenors = {"1Y", "2Y", "5Y", "10Y", "30Y"};
+        List<IborSwap> swaps = new ArrayList<>();
+        for (int i = 0; i < size; i++)
+            swaps.add(IborSwap.of(valuationDate.plusDays(i % 30), tenors[i % tenors.length], i % 2 == 0 ? SwapType.PAY : SwapType.RECEIVE,
+                    0.025 + 0.0001 * (i % 40), FrequencyType.SEMI_ANNUAL, DayCountType.THIRTY_E_360));
+        return swaps;
+    }
+
+    @Test
+    public void swapBookMatchesSequential(){
+        LocalDate valuationDate = LocalDate.of(2018,6,6);
+        IborCurve curve = CurveFixtures.liborCurve(valuationDate);
+        List<IborSwap> swaps = book(valuationDate, 503);
+        PortfolioResult result = PortfolioPricer.swaps(valuationDate, curve, Optional.empty()).withChunkSize(50).build().price(swaps);
+        Assertions.assertEquals(11, result.getNumChunks());
+        double total = 0.0;
+        for (int i = 0; i < swaps.size(); i++){
+            double pv = swaps.get(i).value(valuationDate, curve, Optional.empty(), Optional.empty());
+            Assertions.assertEquals(pv, result.getPV(i), 1e-9);
+            total += pv;
+        }
+        Assertions.assertEquals(total, result.getTotalPV(), 1e-6);
+        Assertions.assertTrue(result.getBusyNanos() > 0);
+    }
+
+    @Test
+    public void cdsBookOnCustomExecutor(){
+        LocalDate valuationDate = LocalDate.of(2018,12,20);
+        IborCurve liborCurve = CurveFixtures.liborCurve(valuationDate);
+        List<CDS> cdsContracts = new ArrayList<>();
+        for (int i = 1; i < 6; i++)
+            cdsContracts.add(CDS.of(valuationDate, DateUtils.addMonths(valuationDate, 12 * i), 0.005 + 0.001 * i));
+        CreditCurve creditCurve = CreditCurve.of(valuationDate, liborCurve, cdsContracts);
+        List<CDS> book = new ArrayList<>();
+        for (int i = 0; i < 40; i++)
+            book.add(CDS.of(valuationDate, DateUtils.addMonths(valuationDate, 6 * (i % 10) + 6), 0.01));
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            PortfolioResult result = PortfolioPricer.cds(valuationDate, creditCurve, Optional.of(0.4))
+                    .withExecutor(executor).withChunkSize(7).build().price(book);
+            Assertions.assertEquals(6, result.getNumChunks());
+            for (int i = 0; i < book.size(); i++){
+                double pv = book.get(i).value(valuationDate, creditCurve, true, Optional.of(0.4), Optional.empty())[0];
+                Assertions.assertEquals(pv, result.getPV(i), 1e-9);
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void failuresPropagate(){
+        PortfolioPricer<String> pricer = new PortfolioPricer.Builder<String>(s -> {
+            if (s.isEmpty())
+                throw new FinlibException("empty trade");
+            return s.length();
+        }).withChunkSize(2).build();
+        Assertions.assertEquals(6.0, pricer.price(List.of("a", "bb", "ccc")).getTotalPV());
+        Assertions.assertEquals(0, pricer.price(List.of()).getNumChunks());
+        Assertions.assertThrows(FinlibException.class, () -> pricer.price(List.of("a", "", "ccc")));
+    }
+}
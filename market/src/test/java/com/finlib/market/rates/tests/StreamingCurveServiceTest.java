@@ -0,0 +1,123 @@
+package com.finlib.market.rates.tests;
+
+import com.finlib.finutils.*;
+import com.finlib.market.rates.*;
+import com.finlib.shared.InterpolationType;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+public class StreamingCurveServiceTest {
+    private static final LocalDate VALUATION_DATE = LocalDate.of(2018,6,6);
+
+    private List<IborDeposit> deposits(double rate){
+        return List.of(IborDeposit.of(VALUATION_DATE, "6M", rate, DayCountType.ACT_360));
+    }
+
+    private List<IborSwap> swaps(double[] rates){
+        List<IborSwap> swaps = new ArrayList<>();
+        for (int i = 0; i < rates.length; i++)
+            swaps.add(IborSwap.of(VALUATION_DATE, CurveFixtures.SWAP_TENORS[i], SwapType.PAY, rates[i], FrequencyType.SEMI_ANNUAL,
+                    DayCountType.THIRTY_E_360));
+        return swaps;
+    }
+
+    private IborCurve next(BlockingQueue<IborCurve> published) throws InterruptedException {
+        IborCurve curve = published.poll(30, TimeUnit.SECONDS);
+        Assertions.assertNotNull(curve, "no curve published");
+        return curve;
+    }
+
+    @Test
+    public void ticksCoalesceAndLatestQuoteWins() throws InterruptedException {
+        BlockingQueue<IborCurve> published = new LinkedBlockingQueue<>();
+        CountDownLatch inFirstBuild = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        StreamingCurveService.Builder builder = new StreamingCurveService.Builder(VALUATION_DATE, InterpolationType.FLAT_FORWARD_RATES)
+                .withDeposits(deposits(0.0231)).withSwaps(swaps(CurveFixtures.SWAP_RATES))
+                .withListener(c -> {
+                    published.add(c);
+                    //hold the worker inside the first publish so the next ticks pile up
+                    if (inFirstBuild.getCount() > 0){
+                        inFirstBuild.countDown();
+                        try {
+                            release.await();
+                        } catch (InterruptedException e){
+                            Thread.currentThread().interrupt();
+                        }
+                    }
+                });
+        try (StreamingCurveService service = builder.build()){
+            service.onSwapQuote(0, 0.0280);
+            Assertions.assertTrue(inFirstBuild.await(30, TimeUnit.SECONDS));
+            next(published);
+
+            double[] rates = CurveFixtures.SWAP_RATES.clone();
+            for (int n = 0; n < 100; n++){
+                rates[n % rates.length] = CurveFixtures.SWAP_RATES[n % rates.length] + 0.00001 * n;
+                service.onSwapQuote(n % rates.length, rates[n % rates.length]);
+            }
+            service.onDepositQuote(0, 0.0240);
+            release.countDown();
+
+            IborCurve latest = next(published);
+            Assertions.assertEquals(2, service.getRebuilds());
+            Assertions.assertEquals(102, service.getTicks());
+            Assertions.assertSame(latest, service.current());
+
+            IborCurve direct = new IborCurve(VALUATION_DATE, Optional.empty(), new ArrayList<>(deposits(0.0240)), new ArrayList<>(),
+                    swaps(rates), InterpolationType.FLAT_FORWARD_RATES, true);
+            Assertions.assertEquals(direct.getDiscFactors().size(), latest.getDiscFactors().size());
+            for (int i = 0; i < direct.getDiscFactors().size(); i++)
+                Assertions.assertEquals(direct.getDiscFactors().getDouble(i), latest.getDiscFactors().getDouble(i), 1e-12);
+            Assertions.assertNull(published.poll(50, TimeUnit.MILLISECONDS));
+            Assertions.assertEquals(2, service.getRebuilds());
+        }
+    }
+
+    @Test
+    public void failedBuildKeepsLastGoodCurve() throws InterruptedException {
+        BlockingQueue<IborCurve> published = new LinkedBlockingQueue<>();
+        StreamingCurveService.Builder builder = new StreamingCurveService.Builder(VALUATION_DATE, InterpolationType.FLAT_FORWARD_RATES)
+                .withDeposits(deposits(0.0231)).withSwaps(swaps(CurveFixtures.SWAP_RATES))
+                .withListener(c -> {
+                    published.add(c);
+                    throw new IllegalStateException("listener failed");
+                });
+        try (StreamingCurveService service = builder.build()){
+            IborCurve initial = service.current();
+            Assertions.assertThrows(FinlibException.class, () -> service.onSwapQuote(0, Double.NaN));
+            Assertions.assertThrows(FinlibException.class, () -> service.onSwapQuote(0, Double.POSITIVE_INFINITY));
+            Assertions.assertEquals(0, service.getTicks());
+
+            //no discount factor in the solver bracket prices a 2Y swap at 1000%
+            service.onSwapQuote(0, 10.0);
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+            while (service.getFailures() == 0 && System.nanoTime() < deadline)
+                Thread.sleep(1);
+            Assertions.assertEquals(1, service.getFailures());
+            Assertions.assertTrue(service.getLastFailure().isPresent());
+            Assertions.assertSame(initial, service.current());
+            Assertions.assertTrue(published.isEmpty());
+            Assertions.assertTrue(service.getLastBuildNanos() > 0);
+
+            //a listener that throws does not undo the publish and is not a build failure
+            service.onSwapQuote(0, 0.0280);
+            IborCurve recovered = next(published);
+            Assertions.assertSame(recovered, service.current());
+            Assertions.assertEquals(1, service.getFailures());
+            Assertions.assertEquals(1, service.getRebuilds());
+            while (service.getListenerFailures() == 0 && System.nanoTime() < deadline)
+                Thread.sleep(1);
+            Assertions.assertEquals(1, service.getListenerFailures());
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package com.finlib.market.rates.tests;
+
+import com.finlib.finutils.*;
+import com.finlib.market.rates.*;
+import com.finlib.shared.CurveChange;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.Optional;
+
+public class SwapPVLadderTest {
+
+    @Test
+    public void longEndMoveRepricesOnlyLongFlows(){
+        LocalDate valuationDate = LocalDate.of(2018,6,6);
+        IborCurve curve = CurveFixtures.liborCurve(valuationDate, -1, 0.0);
+        IborCurve bumped = CurveFixtures.liborCurve(valuationDate, CurveFixtures.SWAP_TENORS.length - 1, 0.0010);
+        CurveChange change = CurveChange.between(curve, bumped);
+        Assertions.assertFalse(change.isAll());
+        Assertions.assertEquals(20.0, change.getFrom(), 0.05);
+        Assertions.assertTrue(CurveChange.between(curve, curve).isNone());
+
+        IborSwap swap = IborSwap.of(valuationDate.minusMonths(2), "30Y", SwapType.RECEIVE, 0.03, FrequencyType.SEMI_ANNUAL, DayCountType.THIRTY_E_360);
+        SwapPVLadder ladder = SwapPVLadder.of(swap, valuationDate, curve, Optional.empty(), Optional.of(0.024));
+        double base = swap.value(valuationDate, curve, Optional.empty(), Optional.of(0.024));
+        Assertions.assertEquals(base, ladder.value(), 1e-6);
+
+        double delta = ladder.revalue(bumped, Optional.empty());
+        double full = swap.value(valuationDate, bumped, Optional.empty(), Optional.of(0.024));
+        Assertions.assertEquals(full - base, delta, 1e-6);
+        Assertions.assertEquals(full, ladder.value(), 1e-6);
+        Assertions.assertTrue(ladder.getLastRecomputed() < ladder.getNumFlows() / 2);
+
+        Assertions.assertEquals(0.0, ladder.revalue(bumped, Optional.empty()));
+        Assertions.assertEquals(0, ladder.getLastRecomputed());
+    }
+
+    @Test
+    public void dualCurveAndFullRebuild(){
+        LocalDate valuationDate = LocalDate.of(2018,6,6);
+        IborCurve index = CurveFixtures.liborCurve(valuationDate, -1, 0.0);
+        IborCurve discount = CurveFixtures.liborCurve(valuationDate, 0, -0.002);
+        IborSwap swap = IborSwap.of(valuationDate, "10Y", SwapType.PAY, 0.029, FrequencyType.SEMI_ANNUAL, DayCountType.THIRTY_E_360);
+        SwapPVLadder ladder = SwapPVLadder.of(swap, valuationDate, index, Optional.of(discount), Optional.empty());
+        Assertions.assertEquals(swap.value(valuationDate, index, Optional.of(discount), Optional.empty()), ladder.value(), 1e-6);
+
+        IborCurve newIndex = CurveFixtures.liborCurve(valuationDate, 3, 0.0005);
+        double delta = ladder.revalue(newIndex, Optional.of(discount));
+        Assertions.assertEquals(swap.value(valuationDate, newIndex, Optional.of(discount), Optional.empty())
+                - swap.value(valuationDate, index, Optional.of(discount), Optional.empty()), delta, 1e-6);
+
+        //a different pillar set invalidates every flow
+        LocalDate nextDate = valuationDate.plusDays(1);
+        IborCurve moved = CurveFixtures.liborCurve(nextDate, -1, 0.0);
+        ladder.revalue(moved, Optional.of(moved));
+        Assertions.assertEquals(ladder.getNumFlows(), ladder.getLastRecomputed());
+        Assertions.assertEquals(swap.value(valuationDate, moved, Optional.of(moved), Optional.empty()), ladder.value(), 1e-6);
+        Assertions.assertThrows(IllegalArgumentException.class, () -> ladder.revalue(moved, Optional.empty()));
+    }
+}
@@ -0,0 +1,89 @@
+package com.finlib.market.rates.tests;
+
+import com.finlib.finutils.*;
+import com.finlib.market.rates.*;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+public class SwapPortfolioTest {
+
+    private List<IborSwap> book(LocalDate valuationDate, int size){
+        String[] tenors = {"1Y", "2Y", "5Y", "7Y", "10Y", "20Y", "30Y"};
+        List<IborSwap> swaps = new ArrayList<>();
+        for (int i = 0; i < size; i++){
+            //a mix of spot, seasoned and forward starting trades
+            LocalDate start = valuationDate.plusDays(17 * (i % 40) - 300);
+            SwapType type = i % 2 == 0 ? SwapType.PAY : SwapType.RECEIVE;
+            swaps.add(IborSwap.of(start, tenors[i % tenors.length], type, 0.02 + 0.0001 * (i % 50),
+                    FrequencyType.SEMI_ANNUAL, DayCountType.THIRTY_E_360));
+        }
+        return swaps;
+    }
+
+    @Test
+    public void matchesPerTradeValuation(){
+        LocalDate valuationDate = LocalDate.of(2018,6,6);
+        IborCurve discountCurve = CurveFixtures.liborCurve(valuationDate, -0.002);
+        IborCurve libor3M = CurveFixtures.liborCurve(valuationDate, 0.0);
+        IborCurve libor6M = CurveFixtures.liborCurve(valuationDate, 0.001);
+        CurveSet curveSet = CurveSet.of(valuationDate, discountCurve, Map.of("LIBOR3M", libor3M, "LIBOR6M", libor6M));
+
+        List<IborSwap> swaps = book(valuationDate, 120);
+        SwapPortfolio.Builder builder = new SwapPortfolio.Builder();
+        for (int i = 0; i < swaps.size(); i++)
+            builder.add(i % 3 == 0 ? "LIBOR6M" : "LIBOR3M", swaps.get(i));
+        SwapPortfolio portfolio = builder.build();
+        Assertions.assertEquals(swaps.size(), portfolio.size());
+
+        double[] pvs = portfolio.valueAll(curveSet);
+        for (int i = 0; i < swaps.size(); i++){
+            IborCurve indexCurve = i % 3 == 0 ? libor6M : libor3M;
+            double expected = swaps.get(i).value(valuationDate, indexCurve, Optional.of(discountCurve), Optional.empty());
+            Assertions.assertEquals(expected, pvs[i], 1e-6);
+        }
+    }
+
+    @Test
+    public void unknownIndexFails(){
+        LocalDate valuationDate = LocalDate.of(2018,6,6);
+        IborCurve curve = CurveFixtures.liborCurve(valuationDate, 0.0);
+        SwapPortfolio portfolio = new SwapPortfolio.Builder().addAll("LIBOR6M", book(valuationDate, 3)).build();
+        Assertions.assertThrows(FinlibException.class, () -> portfolio.valueAll(CurveSet.of("LIBOR3M", curve)));
+        Assertions.assertThrows(FinlibException.class, () -> portfolio.valueAll(CurveSet.of("LIBOR6M", curve), new double[2]));
+    }
+
+    @Test
+    @Tag("benchmark")
+    public void benchmarkAgainstPerTrade(){
+        LocalDate valuationDate = LocalDate.of(2018,6,6);
+        IborCurve curve = CurveFixtures.liborCurve(valuationDate, 0.0);
+        CurveSet curveSet = CurveSet.of("LIBOR3M", curve);
+        List<IborSwap> swaps = book(valuationDate, 2000);
+        SwapPortfolio portfolio = new SwapPortfolio.Builder().addAll("LIBOR3M", swaps).build();
+        double[] pvs = new double[swaps.size()];
+        int warmup = 5, runs = 10;
+        double sink = 0.0;
+        for (int r = 0; r < warmup; r++){
+            portfolio.valueAll(curveSet, pvs);
+            for (IborSwap swap : swaps)
+                sink += swap.value(valuationDate, curve, Optional.empty(), Optional.empty());
+        }
+        long t0 = System.nanoTime();
+        for (int r = 0; r < runs; r++)
+            for (IborSwap swap : swaps)
+                sink += swap.value(valuationDate, curve, Optional.empty(), Optional.empty());
+        long t1 = System.nanoTime();
+        for (int r = 0; r < runs; r++)
+            portfolio.valueAll(curveSet, pvs);
+        long t2 = System.nanoTime();
+        System.out.println(swaps.size() + " swaps per trade: " + (t1 - t0) / runs / 1e6 + " ms, columnar: "
+                + (t2 - t1) / runs / 1e6 + " ms (" + (sink + pvs[0]) + ")");
+    }
+}
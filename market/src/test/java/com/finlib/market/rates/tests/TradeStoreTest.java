@@ -0,0 +1,86 @@
+package com.finlib.market.rates.tests;
+
+import com.finlib.finutils.*;
+import com.finlib.market.credit.CDS;
+import com.finlib.market.portfolio.TradeStore;
+import com.finlib.market.rates.*;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+public class TradeStoreTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    public void roundTripSwapsAndCDS() {
+        LocalDate tradeDate = LocalDate.of(2018,6,6);
+        List<Object> trades = new ArrayList<>();
+        String[] tenors = {"2Y", "5Y", "10Y"};
+        for (int i = 0; i < 3000; i++){
+            if (i % 3 == 2)
+                trades.add(CDS.of(tradeDate.plusDays(i % 20), "5Y", 0.01 + 0.0001 * (i % 7), 5_000_000, i % 2 == 0,
+                        FrequencyType.QUARTERLY, DayCountType.ACT_360, CalendarType.WEEKEND, DayAdjustType.FOLLOWING, DateGenRuleType.BACKWARD));
+            else
+                trades.add(IborSwap.of(tradeDate.plusDays(i % 30), tenors[i % 3], i % 2 == 0 ? SwapType.PAY : SwapType.RECEIVE,
+                        0.02 + 0.0001 * (i % 11), FrequencyType.SEMI_ANNUAL, DayCountType.THIRTY_E_360, 1e6 * (1 + i % 5), 0.001,
+                        FrequencyType.QUARTERLY, DayCountType.ACT_360, CalendarType.TARGET, DayAdjustType.MODIFIED_FOLLOWING, DateGenRuleType.BACKWARD));
+        }
+        Path path = tempDir.resolve("book.bin");
+        try (TradeStore.Writer writer = TradeStore.create(path)){
+            for (Object trade : trades){
+                if (trade instanceof IborSwap)
+                    writer.add((IborSwap) trade);
+                else
+                    writer.add((CDS) trade);
+            }
+        }
+
+        try (TradeStore store = TradeStore.open(path)){
+            Assertions.assertEquals(trades.size(), store.size());
+            TradeStore.Record record = store.record();
+            for (int i = 0; i < trades.size(); i += 7){
+                Object trade = trades.get(i);
+                record.moveTo(i);
+                if (trade instanceof IborSwap){
+                    IborSwap swap = (IborSwap) trade;
+                    Assertions.assertTrue(record.isSwap());
+                    Assertions.assertEquals(swap.getTerminationDate(), record.getEndDate());
+                    Assertions.assertEquals(swap.getFixedCoupon(), record.getCoupon());
+                    Assertions.assertEquals(swap, store.swap(i));
+                    Assertions.assertThrows(FinlibException.class, () -> record.toCDS());
+                } else {
+                    Assertions.assertEquals(TradeStore.CDS_TRADE, store.kind(i));
+                    Assertions.assertEquals(trade, store.cds(i));
+                }
+            }
+            Assertions.assertEquals(2000, store.toSwapPortfolio("LIBOR3M").size());
+            Assertions.assertThrows(FinlibException.class, () -> store.swap(trades.size()));
+        }
+    }
+
+    @Test
+    public void truncatedStoreIsRejected() throws IOException {
+        Path path = tempDir.resolve("short.bin");
+        try (TradeStore.Writer writer = TradeStore.create(path)){
+            writer.add(IborSwap.of(LocalDate.of(2018,6,6), "5Y", SwapType.PAY, 0.03, FrequencyType.ANNUAL, DayCountType.ACT_360));
+            writer.add(IborSwap.of(LocalDate.of(2018,6,6), "7Y", SwapType.PAY, 0.03, FrequencyType.ANNUAL, DayCountType.ACT_360));
+        }
+        try (TradeStore store = TradeStore.open(path)){
+            Assertions.assertEquals(2, store.size());
+        }
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)){
+            channel.truncate(channel.size() - 8);
+        }
+        Assertions.assertThrows(FinlibException.class, () -> TradeStore.open(path));
+    }
+}
@@ -0,0 +1,80 @@
+package com.finlib.shared;
+
+import com.finlib.finutils.DayCountType;
+
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.Arrays;
+
+/*A read-only view of a built discount curve that memoizes df(LocalDate) by day
+offset from the valuation date. Bootstrapping a projection curve against a fixed
+discount curve asks for the same handful of payment dates on every solver
+iteration, so after the first pass every lookup is a single array read.
+Times on an ACT/365 day grid, which is what yearFrac gives for this curve, share
+the same cache, so legs that precompute their curve times still hit it.
+The wrapped curve must not be modified afterwards.*/
+public final class CachedDiscountCurve extends DiscountCurve {
+    private final DiscountCurve curve;
+    private final long valuationEpochDay;
+    private final boolean act365;
+    private final double[] cache;
+
+    private CachedDiscountCurve(DiscountCurve curve, int maxDays){
+        this.curve = curve;
+        this.valuationDate = curve.getValuationDate();
+        this.times = curve.times;
+        this.dfs = curve.dfs;
+        this.interpolator = curve.getInterpolator();
+        this.dayCountType = curve.getDayCountType();
+        this.valuationEpochDay = valuationDate.toEpochDay();
+        this.act365 = dayCountType == null || dayCountType == DayCountType.ACT_365F || dayCountType == DayCountType.SIMPLE;
+        this.cache = new double[maxDays + 1];
+        Arrays.fill(cache, Double.NaN);
+    }
+
+    public static CachedDiscountCurve of(DiscountCurve curve){
+        double lastTime = curve.times.getDouble(curve.times.size() - 1);
+        return new CachedDiscountCurve(curve, (int) Math.ceil(lastTime * 366.0) + 31);
+    }
+
+    public static CachedDiscountCurve of(DiscountCurve curve, LocalDate lastDate){
+        return new CachedDiscountCurve(curve, (int) ChronoUnit.DAYS.between(curve.getValuationDate(), lastDate));
+    }
+
+    @Override
+    public double df(LocalDate dt){
+        long offset = dt.toEpochDay() - valuationEpochDay;
+        if (offset < 0 || offset >= cache.length)
+            return curve.df(dt);
+        int i = (int) offset;
+        double df = cache[i];
+        if (Double.isNaN(df)){
+            //the value is deterministic so a racing writer can only store the same number
+            df = curve.df(dt);
+            cache[i] = df;
+        }
+        return df;
+    }
+
+    //Only an exact day offset hits the cache, and on ACT/365 it has the same value as the date
+    @Override
+    public double df(double t){
+        if (act365){
+            long offset = Math.round(t * 365.0);
+            if (offset >= 0 && offset < cache.length && offset / 365.0 == t){
+                int i = (int) offset;
+                double df = cache[i];
+                if (Double.isNaN(df)){
+                    df = curve.df(t);
+                    cache[i] = df;
+                }
+                return df;
+            }
+        }
+        return curve.df(t);
+    }
+
+    public DiscountCurve getCurve(){
+        return curve;
+    }
+}
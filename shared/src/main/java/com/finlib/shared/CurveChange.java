@@ -0,0 +1,72 @@
+package com.finlib.shared;
+
+import it.unimi.dsi.fastutil.doubles.DoubleArrayList;
+
+/*The range of curve times over which df(t) can differ between two builds of a
+curve. Pillars are compared one by one. With the local interpolation schemes a
+moved pillar only reaches the neighbouring intervals, so flows outside the range
+keep their discount factors. The spline schemes, or a change of valuation date,
+pillar grid or scheme, make the whole curve count as changed.*/
+public final class CurveChange {
+    public static final CurveChange NONE = new CurveChange(0.0, 0.0);
+    public static final CurveChange ALL = new CurveChange(Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY);
+
+    private final double from;
+    private final double to;
+
+    private CurveChange(double from, double to){
+        this.from = from;
+        this.to = to;
+    }
+
+    public static CurveChange between(DiscountCurve before, DiscountCurve after){
+        if (before == after)
+            return NONE;
+        InterpolationType interpType = after.getInterpolator().getInterpolationType();
+        DoubleArrayList times = after.times;
+        int n = times.size();
+        if (!before.getValuationDate().equals(after.getValuationDate())
+                || before.getInterpolator().getInterpolationType() != interpType
+                || before.getDayCountType() != after.getDayCountType()
+                || !before.times.equals(times) || before.dfs.size() != n || after.dfs.size() != n)
+            return ALL;
+        int first = -1, last = -1;
+        for (int i = 0; i < n; i++){
+            if (Double.compare(before.dfs.getDouble(i), after.dfs.getDouble(i)) != 0){
+                if (first < 0)
+                    first = i;
+                last = i;
+            }
+        }
+        if (first < 0)
+            return NONE;
+        //number of pillars to the right of an interval that its interpolation reads
+        int reach;
+        if (interpType == InterpolationType.LINEAR_ZERO_RATES || interpType == InterpolationType.FLAT_FORWARD_RATES)
+            reach = 1;
+        else if (interpType == InterpolationType.LINEAR_FORWARD_RATES)
+            reach = 2;
+        else
+            return ALL;
+        double from = first == 0 ? Double.NEGATIVE_INFINITY : times.getDouble(first - 1);
+        //extrapolation past the last pillar reads the last two pillars
+        double to = last + reach >= n - 1 ? Double.POSITIVE_INFINITY : times.getDouble(last + reach);
+        return new CurveChange(from, to);
+    }
+
+    public boolean isNone(){
+        return from >= to;
+    }
+
+    public boolean isAll(){
+        return from == Double.NEGATIVE_INFINITY && to == Double.POSITIVE_INFINITY;
+    }
+
+    //Whether df(t) may have moved; the end points are unchanged pillars
+    public boolean affects(double t){
+        return t > from && t < to;
+    }
+
+    public double getFrom(){ return from;}
+    public double getTo(){ return to;}
+}
@@ -18,7 +18,7 @@ public class DiscountCurve {
     private InterpolationType interpType;
     private final FrequencyType freqType = FrequencyType.CONTINUOUS;
     protected LocalDate valuationDate;
-    private DayCountType dayCountType;
+    protected DayCountType dayCountType;
     protected Interpolator interpolator;
 
     public DiscountCurve(){}
@@ -82,8 +82,7 @@ public class DiscountCurve {
     }
 
     public double df(LocalDate dt){
-        double yearFrac = new DayCount(dayCountType).yearFrac(valuationDate,dt, Optional.empty());
-        return interpolator.interpolate(yearFrac);
+        return interpolator.interpolate(yearFrac(dt));
     }
     public double df(double dt){
         return interpolator.interpolate(dt);
@@ -121,7 +120,7 @@ public class DiscountCurve {
     private double ccRate(LocalDate maturityDate, DayCountType dayCountType){
         return zeroRate(maturityDate,FrequencyType.CONTINUOUS,dayCountType);
     }
-    private double swapRate(LocalDate effectiveDate, LocalDate maturityDate, FrequencyType freqType, DayCountType dayCountType){
+    public double swapRate(LocalDate effectiveDate, LocalDate maturityDate, FrequencyType freqType, DayCountType dayCountType){
         if (effectiveDate.isBefore(valuationDate))
             throw new RuntimeException("Swap starts before the curve valuation date.");
         if (freqType == FrequencyType.SIMPLE)
@@ -150,6 +149,66 @@ public class DiscountCurve {
         return (dfStart - discFact) / pv01;
     }
 
+    /*Par swap rates for every (start date, tenor) pair, indexed [start][tenor]. One
+    schedule is built per start date out to the longest tenor and its annuity is summed
+    once into prefix sums, so each tenor that ends on that schedule costs a single
+    lookup. This holds when the start day is at most the 28th and the tenor is a whole
+    number of periods, since the backward schedule of the shorter swap is then a prefix
+    of the longer one. Other tenors fall back to swapRate.*/
+    public double[][] parSwapRates(List<LocalDate> startDates, List<String> tenors, FrequencyType freqType, DayCountType dayCountType){
+        if (freqType == FrequencyType.SIMPLE)
+            throw new RuntimeException("Cannot calculate par rate with simple yield freq.");
+        if (freqType == FrequencyType.CONTINUOUS)
+            throw new RuntimeException("Cannot calculate par rate with continuous freq.");
+        int numOfMonths = 12 / freqType.getFrequency();
+        DayCount dc = new DayCount(dayCountType);
+        double[][] rates = new double[startDates.size()][tenors.size()];
+        for (int s = 0; s < startDates.size(); s++){
+            LocalDate effectiveDate = startDates.get(s);
+            if (effectiveDate.isBefore(valuationDate))
+                throw new RuntimeException("Swap starts before the curve valuation date.");
+            LocalDate[] maturityDates = new LocalDate[tenors.size()];
+            int[] periods = new int[tenors.size()];
+            int maxPeriods = 0;
+            for (int k = 0; k < tenors.size(); k++){
+                maturityDates[k] = DateUtils.addTenor(effectiveDate, tenors.get(k));
+                long months = ChronoUnit.MONTHS.between(effectiveDate, maturityDates[k]);
+                boolean onGrid = effectiveDate.getDayOfMonth() <= 28 && months > 0 && months % numOfMonths == 0
+                        && effectiveDate.plusMonths(months).equals(maturityDates[k]);
+                periods[k] = onGrid ? (int) (months / numOfMonths) : -1;
+                maxPeriods = Math.max(maxPeriods, periods[k]);
+            }
+
+            double[] annuity = new double[0];
+            double[] dfEnd = new double[0];
+            if (maxPeriods > 0){
+                LocalDate lastDate = effectiveDate.plusMonths((long) maxPeriods * numOfMonths);
+                Schedule schedule = new Schedule.Builder(effectiveDate,lastDate).withFrequency(freqType).build();
+                List<LocalDate> flowDates = schedule.getAdjustedDates();
+                annuity = new double[flowDates.size()];
+                dfEnd = new double[flowDates.size()];
+                double pv01 = 0.0;
+                LocalDate prevDt = effectiveDate;
+                for (int j = 1; j < flowDates.size(); j++){
+                    LocalDate nextDt = flowDates.get(j);
+                    dfEnd[j] = df(nextDt);
+                    pv01 += dc.yearFrac(prevDt, nextDt) * dfEnd[j];
+                    annuity[j] = pv01;
+                    prevDt = nextDt;
+                }
+            }
+            double dfStart = df(effectiveDate);
+            for (int k = 0; k < tenors.size(); k++){
+                int n = periods[k];
+                if (n < 0)
+                    rates[s][k] = swapRate(effectiveDate, maturityDates[k], freqType, dayCountType);
+                else
+                    rates[s][k] = Math.abs(annuity[n]) < 1e-10 ? 0.0 : (dfStart - dfEnd[n]) / annuity[n];
+            }
+        }
+        return rates;
+    }
+
     public double fwd(LocalDate dt){
         double df1 = df(dt);
         double df2 = df(dt.plusDays(1));
@@ -193,6 +252,15 @@ public class DiscountCurve {
         return valuationDate;
     }
 
+    //Curve time of a date, the argument df(double) expects
+    public double yearFrac(LocalDate dt){
+        return new DayCount(dayCountType).yearFrac(valuationDate,dt, Optional.empty());
+    }
+
+    public DayCountType getDayCountType() {
+        return dayCountType;
+    }
+
     private boolean testMonotonicity(){
         return IntStream.range(1, times.size()).reduce(0, (acc, e) -> acc + (times.getDouble(e - 1) <= times.getDouble(e) ? 0 : 1)) == 0;
     }
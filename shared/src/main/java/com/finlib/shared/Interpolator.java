@@ -40,6 +40,10 @@ public class Interpolator {
         this.dfs = dfs;
     }
 
+    public InterpolationType getInterpolationType(){
+        return interpType;
+    }
+
     /*public static List<Double> pinterpolate(List<Double> t, List<Double> times, List<Double> dfs, InterpolationTypes method){
         return t.stream().map(x -> interpolate(x, times, dfs, method)).collect(Collectors.toList());
     }*/